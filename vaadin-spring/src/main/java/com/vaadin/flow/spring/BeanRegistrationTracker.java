@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Tracks the bean definitions of an application context, so that values
+ * derived from its beans can be cached until the beans may have changed.
+ * <p>
+ * The beans are considered changed when the number of bean definitions
+ * changes and when the context is refreshed, which replaces the bean factory
+ * of a refreshable context. Both are read without locking, so that checking
+ * for changes costs no more than a cache hit. Singletons registered directly,
+ * and a definition removed while another one is registered, are not detected:
+ * owners do not cache the absence of a bean, which is what such changes
+ * usually affect. Nothing is registered in the context, the tracker is dropped
+ * along with its owner.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class BeanRegistrationTracker {
+
+    private final ApplicationContext context;
+
+    private volatile Stamp stamp;
+
+    private static final class Stamp {
+        private final Object beanFactory;
+        private final int definitionCount;
+
+        private Stamp(Object beanFactory, int definitionCount) {
+            this.beanFactory = beanFactory;
+            this.definitionCount = definitionCount;
+        }
+    }
+
+    /**
+     * Creates a new tracker of the given context, starting from its current
+     * registrations.
+     *
+     * @param context
+     *            the application context
+     */
+    BeanRegistrationTracker(ApplicationContext context) {
+        this.context = context;
+        stamp = new Stamp(context.getAutowireCapableBeanFactory(),
+                context.getBeanDefinitionCount());
+    }
+
+    /**
+     * Checks whether the beans may have changed since the previous check, or
+     * since the tracker has been created.
+     *
+     * @return {@code true} if the values derived from the beans should be
+     *         computed again
+     */
+    boolean hasChanged() {
+        Object beanFactory = context.getAutowireCapableBeanFactory();
+        int definitionCount = context.getBeanDefinitionCount();
+        Stamp previous = stamp;
+        if (previous.beanFactory == beanFactory
+                && previous.definitionCount == definitionCount) {
+            return false;
+        }
+        stamp = new Stamp(beanFactory, definitionCount);
+        return true;
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a class file needed to tell whether a class is annotated with
+ * or extends a type: names of the class, its super class and interfaces, its
+ * access flags, the types of its runtime visible annotations and whether it is
+ * nested.
+ * <p>
+ * Only the constant pool, the class header and the class attributes are read;
+ * fields and methods are skipped.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+final class ClassFileInfo {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_STATIC = 0x0008;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private final String className;
+
+    private final String superClassName;
+
+    private final List<String> interfaceNames;
+
+    private final List<String> annotationNames;
+
+    private final int access;
+
+    private final boolean independent;
+
+    private ClassFileInfo(String className, String superClassName,
+            List<String> interfaceNames, List<String> annotationNames,
+            int access, boolean independent) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.annotationNames = annotationNames;
+        this.access = access;
+        this.independent = independent;
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    /**
+     * Gets the super class name.
+     *
+     * @return the super class name or {@code null} for {@link Object} and
+     *         module descriptors
+     */
+    String getSuperClassName() {
+        return superClassName;
+    }
+
+    List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    List<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    boolean isAbstract() {
+        return (access & ACC_ABSTRACT) != 0;
+    }
+
+    boolean isConcrete() {
+        return !isInterface() && !isAbstract();
+    }
+
+    /**
+     * Checks whether the class is a top level class or a static nested class,
+     * the same way as {@link org.springframework.core.type.ClassMetadata}.
+     *
+     * @return whether the class can be constructed independently
+     */
+    boolean isIndependent() {
+        return independent;
+    }
+
+    /**
+     * Parses a class file.
+     *
+     * @param content
+     *            the class file content, from its current position
+     * @return the parsed class information
+     * @throws IOException
+     *             if the content is not a valid class file
+     */
+    static ClassFileInfo parse(ByteBuffer content) throws IOException {
+        try {
+            return new Parser(content).parse();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+    }
+
+    private static class Parser {
+        private final ByteBuffer buffer;
+
+        private int[] offsets;
+
+        private Parser(ByteBuffer content) {
+            buffer = content.slice().order(ByteOrder.BIG_ENDIAN);
+        }
+
+        private ClassFileInfo parse() throws IOException {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a class file");
+            }
+            // minor and major version
+            buffer.getInt();
+            readConstantPool();
+
+            int access = u2();
+            int thisClass = u2();
+            String className = getClassName(thisClass);
+            int superClass = u2();
+            String superClassName = superClass == 0 ? null
+                    : getClassName(superClass);
+            int interfaceCount = u2();
+            List<String> interfaceNames = new ArrayList<>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaceNames.add(getClassName(u2()));
+            }
+            skipMembers();
+            skipMembers();
+
+            List<String> annotationNames = Collections.emptyList();
+            boolean enclosed = false;
+            boolean staticInner = false;
+            int attributeCount = u2();
+            for (int i = 0; i < attributeCount; i++) {
+                String name = getUtf8(u2());
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                if ("RuntimeVisibleAnnotations".equals(name)) {
+                    annotationNames = readAnnotationNames();
+                } else if ("InnerClasses".equals(name)) {
+                    int classes = u2();
+                    for (int j = 0; j < classes; j++) {
+                        int inner = u2();
+                        int outer = u2();
+                        // inner name
+                        u2();
+                        int flags = u2();
+                        if (inner == thisClass && outer != 0) {
+                            enclosed = true;
+                            staticInner = (flags & ACC_STATIC) != 0;
+                        }
+                    }
+                } else if ("EnclosingMethod".equals(name)) {
+                    enclosed = true;
+                }
+                buffer.position(end);
+            }
+            return new ClassFileInfo(className, superClassName,
+                    interfaceNames, annotationNames, access,
+                    !enclosed || staticInner);
+        }
+
+        private void readConstantPool() throws IOException {
+            int count = u2();
+            offsets = new int[count];
+            for (int index = 1; index < count; index++) {
+                int tag = buffer.get();
+                offsets[index] = buffer.position();
+                switch (tag) {
+                case 1: // Utf8
+                    int length = u2();
+                    skip(length);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skip(2);
+                    break;
+                case 15: // MethodHandle
+                    skip(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skip(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skip(8);
+                    index++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+                }
+            }
+        }
+
+        private void skipMembers() {
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                // access flags, name and descriptor
+                skip(6);
+                skipAttributes();
+            }
+        }
+
+        private void skipAttributes() {
+            int count = u2();
+            for (int i = 0; i < count; i++) {
+                skip(2);
+                skip(buffer.getInt());
+            }
+        }
+
+        private List<String> readAnnotationNames() throws IOException {
+            int count = u2();
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                names.add(getDescriptorClassName(getUtf8(u2())));
+                skipElementValuePairs();
+            }
+            return names;
+        }
+
+        private void skipElementValuePairs() throws IOException {
+            int pairs = u2();
+            for (int i = 0; i < pairs; i++) {
+                skip(2);
+                skipElementValue();
+            }
+        }
+
+        private void skipElementValue() throws IOException {
+            int tag = buffer.get();
+            switch (tag) {
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+            case 's':
+            case 'c':
+                skip(2);
+                break;
+            case 'e':
+                skip(4);
+                break;
+            case '@':
+                skip(2);
+                skipElementValuePairs();
+                break;
+            case '[':
+                int values = u2();
+                for (int i = 0; i < values; i++) {
+                    skipElementValue();
+                }
+                break;
+            default:
+                throw new IOException("Unknown element value tag " + tag);
+            }
+        }
+
+        private String getClassName(int classIndex) throws IOException {
+            int nameIndex = Short.toUnsignedInt(
+                    buffer.getShort(offsets[classIndex]));
+            return getUtf8(nameIndex).replace('/', '.');
+        }
+
+        private String getDescriptorClassName(String descriptor) {
+            if (descriptor.startsWith("L") && descriptor.endsWith(";")) {
+                return descriptor.substring(1, descriptor.length() - 1)
+                        .replace('/', '.');
+            }
+            return descriptor;
+        }
+
+        /**
+         * Decodes a modified UTF-8 constant.
+         */
+        private String getUtf8(int index) throws IOException {
+            int position = offsets[index];
+            int length = Short.toUnsignedInt(buffer.getShort(position));
+            position += 2;
+            int end = position + length;
+            char[] chars = new char[length];
+            int count = 0;
+            while (position < end) {
+                int b = buffer.get(position++) & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                } else if ((b & 0xE0) == 0xC0) {
+                    chars[count++] = (char) (((b & 0x1F) << 6)
+                            | (buffer.get(position++) & 0x3F));
+                } else if ((b & 0xF0) == 0xE0) {
+                    chars[count++] = (char) (((b & 0x0F) << 12)
+                            | ((buffer.get(position++) & 0x3F) << 6)
+                            | (buffer.get(position++) & 0x3F));
+                } else {
+                    throw new IOException("Invalid modified UTF-8");
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        private int u2() {
+            return Short.toUnsignedInt(buffer.getShort());
+        }
+
+        private void skip(int length) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.TypeConverter;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Bean factory creating the components of {@link SpringInstantiator} from a
+ * prototype bean definition registered for each component class.
+ * <p>
+ * {@code AutowireCapableBeanFactory.createBean(Class)} creates a new bean
+ * definition for every instance, resolving the constructor to use and running
+ * the merged bean definition post-processors every time. Here the definition
+ * of a class is kept, with the resolved constructor and the post-processed
+ * state cached by Spring, and only the dependencies are resolved again for
+ * each instance.
+ * <p>
+ * The factory is a child of the bean factory of the application context,
+ * with the same configuration and bean post-processors. Dependencies are
+ * resolved by the parent, so that nothing else than the definitions of the
+ * components is registered here and the components are not visible to the
+ * application context.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class ComponentBeanFactory extends DefaultListableBeanFactory {
+
+    private final ConfigurableListableBeanFactory parent;
+
+    private final Map<Class<?>, String> beanNames = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new factory for the components of the given bean factory.
+     *
+     * @param parent
+     *            the bean factory of the application context
+     */
+    ComponentBeanFactory(ConfigurableListableBeanFactory parent) {
+        super(parent);
+        this.parent = parent;
+        copyConfigurationFrom(parent);
+    }
+
+    /**
+     * Creates a new instance of a component class, as
+     * {@code AutowireCapableBeanFactory.createBean(Class)} would.
+     *
+     * @param componentClass
+     *            the component class
+     * @param <T>
+     *            the component type
+     * @return a new component instance
+     */
+    <T> T createComponent(Class<T> componentClass) {
+        if (!ClassUtils.isCacheSafe(componentClass, getBeanClassLoader())) {
+            return parent.createBean(componentClass);
+        }
+        String beanName = beanNames.computeIfAbsent(componentClass, type -> {
+            RootBeanDefinition definition = new RootBeanDefinition(type);
+            definition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+            registerBeanDefinition(type.getName(), definition);
+            return type.getName();
+        });
+        return getBean(beanName, componentClass);
+    }
+
+    @Override
+    public Object resolveDependency(DependencyDescriptor descriptor,
+            String requestingBeanName, Set<String> autowiredBeanNames,
+            TypeConverter typeConverter) {
+        return parent.resolveDependency(descriptor, requestingBeanName,
+                autowiredBeanNames, typeConverter);
+    }
+}
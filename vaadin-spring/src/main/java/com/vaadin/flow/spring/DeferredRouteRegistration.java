@@ -0,0 +1,131 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Route registration running in a background thread after the servlet context
+ * has been initialized.
+ * <p>
+ * The names of the route classes are known when the registration is created,
+ * loading the classes and registering them as routes is left to the
+ * background thread. The instance is stored as a servlet context attribute
+ * and the Vaadin servlet waits for the registration to finish before handling
+ * requests. It also waits before being initialized, since its service caches
+ * data read from the route registry, such as the {@code @PWA} configuration.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class DeferredRouteRegistration {
+
+    private final List<String> routeClassNames;
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new registration of the given route classes.
+     *
+     * @param routeClassNames
+     *            the names of the classes annotated with {@code @Route} or
+     *            {@code @RouteAlias}
+     */
+    DeferredRouteRegistration(List<String> routeClassNames) {
+        this.routeClassNames = Collections.unmodifiableList(routeClassNames);
+    }
+
+    /**
+     * Gets the names of the route classes found on startup.
+     *
+     * @return the route class names
+     */
+    List<String> getRouteClassNames() {
+        return routeClassNames;
+    }
+
+    /**
+     * Starts the registration in a new daemon thread and publishes this
+     * instance in the servlet context.
+     *
+     * @param servletContext
+     *            the servlet context to publish the registration in
+     * @param registration
+     *            loads and registers the route classes
+     */
+    void start(ServletContext servletContext, Runnable registration) {
+        servletContext.setAttribute(DeferredRouteRegistration.class.getName(),
+                this);
+        Thread thread = new Thread(() -> {
+            try {
+                registration.run();
+            } catch (Throwable e) {
+                // Errors such as NoClassDefFoundError must not leave the
+                // application running without routes
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }, "vaadin-route-registration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for the registration to finish.
+     *
+     * @throws ServletException
+     *             if the registration has failed or the thread has been
+     *             interrupted while waiting
+     */
+    void await() throws ServletException {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(
+                    "Interrupted while waiting for the route registration", e);
+        }
+        if (failure != null) {
+            throw new ServletException("Route registration failed", failure);
+        }
+    }
+
+    /**
+     * Waits for the registration started in the given servlet context, if
+     * any, to finish.
+     *
+     * @param servletContext
+     *            the servlet context
+     * @throws ServletException
+     *             if the registration has failed or the thread has been
+     *             interrupted while waiting
+     */
+    static void await(ServletContext servletContext) throws ServletException {
+        Object registration = servletContext
+                .getAttribute(DeferredRouteRegistration.class.getName());
+        if (registration instanceof DeferredRouteRegistration) {
+            ((DeferredRouteRegistration) registration).await();
+        }
+    }
+}
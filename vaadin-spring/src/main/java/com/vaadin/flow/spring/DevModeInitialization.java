@@ -0,0 +1,199 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.shared.ApplicationConstants;
+
+/**
+ * Runs the phases of the development mode initialization, notifying
+ * {@link DevModeInitializationListener}s, either in the calling thread or in
+ * the background.
+ * <p>
+ * A background initialization is stored as a servlet context attribute so
+ * that the Vaadin servlet can answer page requests with a placeholder page
+ * until it is done. Other requests, such as the UIDL, heartbeat and push
+ * requests of sessions kept by a restart, are handled as usual. If the
+ * initialization fails, every request fails with its error.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class DevModeInitialization {
+
+    private static final String PLACEHOLDER = "<!DOCTYPE html><html><head>"
+            + "<meta http-equiv=\"refresh\" content=\"2\">"
+            + "<title>Compiling</title></head><body>"
+            + "<p>The development mode is starting, the page reloads when it is ready.</p>"
+            + "</body></html>";
+
+    private final List<DevModeInitializationListener> listeners;
+
+    private volatile boolean running;
+
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new initialization notifying the given listeners.
+     *
+     * @param listeners
+     *            the listeners to notify of each phase
+     */
+    DevModeInitialization(
+            Collection<DevModeInitializationListener> listeners) {
+        this.listeners = new ArrayList<>(listeners);
+    }
+
+    /**
+     * Runs a phase and notifies the listeners.
+     *
+     * @param phase
+     *            the phase name
+     * @param action
+     *            the phase
+     * @param <T>
+     *            the phase result type
+     * @return the phase result
+     */
+    <T> T runPhase(String phase, Supplier<T> action) {
+        listeners.forEach(listener -> listener.phaseStarted(phase));
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            listeners.forEach(listener -> listener.phaseFailed(phase, e));
+            throw e;
+        }
+        long duration = TimeUnit.NANOSECONDS
+                .toMillis(System.nanoTime() - start);
+        listeners.forEach(listener -> listener.phaseCompleted(phase, duration));
+        return result;
+    }
+
+    /**
+     * Runs the initialization in a dedicated thread and publishes this
+     * instance in the servlet context until it is done.
+     *
+     * @param servletContext
+     *            the servlet context
+     * @param initialization
+     *            the initialization, running its phases with
+     *            {@link #runPhase(String, Supplier)}
+     */
+    void start(ServletContext servletContext, Runnable initialization) {
+        running = true;
+        servletContext.setAttribute(DevModeInitialization.class.getName(),
+                this);
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "vaadin-dev-mode-init");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(() -> {
+            try {
+                initialization.run();
+            } catch (Throwable e) {
+                // Errors such as NoClassDefFoundError must not leave the
+                // application running without the development mode
+                failure = e;
+                getLogger().error(
+                        "Unable to initialize the development mode", e);
+            } finally {
+                running = false;
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Checks whether the initialization is still running.
+     *
+     * @return {@code true} until the background initialization is done
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Answers a page request with a placeholder page if the development mode
+     * is still being initialized in the background.
+     *
+     * @param servletContext
+     *            the servlet context
+     * @param request
+     *            the request
+     * @param response
+     *            the response to write the placeholder to
+     * @return {@code true} if the placeholder has been written and the request
+     *         should not be handled
+     * @throws IOException
+     *             if the placeholder cannot be written
+     * @throws ServletException
+     *             if the background initialization has failed
+     */
+    static boolean writePlaceholderIfRunning(ServletContext servletContext,
+            HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        Object attribute = servletContext
+                .getAttribute(DevModeInitialization.class.getName());
+        if (!(attribute instanceof DevModeInitialization)) {
+            return false;
+        }
+        DevModeInitialization initialization = (DevModeInitialization) attribute;
+        if (initialization.failure != null) {
+            throw new ServletException(
+                    "Development mode initialization failed",
+                    initialization.failure);
+        }
+        if (!initialization.isRunning() || !isPageRequest(request)) {
+            return false;
+        }
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", "2");
+        response.setContentType("text/html;charset=UTF-8");
+        PrintWriter writer = response.getWriter();
+        writer.write(PLACEHOLDER);
+        writer.flush();
+        return true;
+    }
+
+    private static boolean isPageRequest(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) && request.getParameter(
+                ApplicationConstants.REQUEST_TYPE_PARAMETER) == null;
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(DevModeInitialization.class);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+/**
+ * Listener for the progress of the development mode initialization.
+ * <p>
+ * All the beans implementing this interface are notified when a phase of the
+ * initialization starts and ends. With
+ * {@code vaadin.dev-mode-background-init} enabled the notifications are sent
+ * from the background thread running the initialization.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public interface DevModeInitializationListener {
+
+    /**
+     * The class path scan for the classes handled by the development mode.
+     */
+    String SCAN = "scan";
+
+    /**
+     * The initialization of the development mode handler.
+     */
+    String DEV_MODE_HANDLER = "dev-mode-handler";
+
+    /**
+     * Called when a phase starts.
+     *
+     * @param phase
+     *            the phase, {@link #SCAN} or {@link #DEV_MODE_HANDLER}
+     */
+    default void phaseStarted(String phase) {
+        // NO-OP
+    }
+
+    /**
+     * Called when a phase has completed successfully.
+     *
+     * @param phase
+     *            the phase, {@link #SCAN} or {@link #DEV_MODE_HANDLER}
+     * @param durationMillis
+     *            the duration of the phase in milliseconds
+     */
+    default void phaseCompleted(String phase, long durationMillis) {
+        // NO-OP
+    }
+
+    /**
+     * Called when a phase has failed. No further phases are run.
+     *
+     * @param phase
+     *            the phase, {@link #SCAN} or {@link #DEV_MODE_HANDLER}
+     * @param failure
+     *            the failure
+     */
+    default void phaseFailed(String phase, Throwable failure) {
+        // NO-OP
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Finds the classes annotated with or extending given types inside a single
+ * class path root by reading the class files directly.
+ * <p>
+ * Jar files, including the jars nested in a Spring Boot executable jar, are
+ * memory mapped and walked through their central directory with
+ * {@link MappedZip}, directories are walked with {@link Files#walk}. Every
+ * class file is parsed once with {@link ClassFileInfo} and matched the same
+ * way as {@link org.springframework.core.type.filter.AnnotationTypeFilter}
+ * and {@link org.springframework.core.type.filter.AssignableTypeFilter} do,
+ * without creating a resource, a metadata reader and a bean definition for
+ * each class.
+ * <p>
+ * Unlike the Spring class path scanning, {@code @Conditional} annotations are
+ * not evaluated. Roots which cannot be handled, such as remote jars or Zip64
+ * archives, are reported as unsupported so that the caller can scan them the
+ * usual way.
+ * <p>
+ * An instance is meant for a single scan and is thread safe.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class MappedClassScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ClassLoader classLoader;
+
+    private final Map<String, Boolean> annotations = new LinkedHashMap<>();
+
+    private final Set<String> types = new LinkedHashSet<>();
+
+    private final Predicate<String> pathFilter;
+
+    private final Map<String, MappedZip> archives = new ConcurrentHashMap<>();
+
+    private final Map<String, ClassFileInfo> infos = new ConcurrentHashMap<>();
+
+    private final Set<String> missingClasses = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Set<String>> superTypes = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> metaAnnotations = new ConcurrentHashMap<>();
+
+    private final AtomicInteger resourceCount = new AtomicInteger();
+
+    /**
+     * Creates a new scanner.
+     *
+     * @param classLoader
+     *            the class loader to read super types and annotations from
+     * @param annotations
+     *            the annotations to look for
+     * @param types
+     *            the super types to look for
+     * @param pathFilter
+     *            tells whether a class file, given by its path relative to the
+     *            class path root, is scanned
+     */
+    MappedClassScanner(ClassLoader classLoader,
+            Collection<Class<? extends Annotation>> annotations,
+            Collection<Class<?>> types, Predicate<String> pathFilter) {
+        this.classLoader = classLoader;
+        annotations.forEach(annotation -> this.annotations.put(
+                annotation.getName(),
+                annotation.isAnnotationPresent(Inherited.class)));
+        types.forEach(type -> this.types.add(type.getName()));
+        this.pathFilter = pathFilter;
+    }
+
+    /**
+     * Finds the matching classes inside the given root.
+     *
+     * @param root
+     *            a directory or jar root of a package
+     * @param rootPath
+     *            the path of the package of the root, empty or ending with a
+     *            slash
+     * @return the names of the annotations and super types by the name of
+     *         each matching class, or {@code null} if the root is not
+     *         supported
+     * @throws IOException
+     *             if the root cannot be listed
+     */
+    Map<String, Set<String>> scan(Resource root, String rootPath)
+            throws IOException {
+        URL url = root.getURL();
+        List<ClassFileInfo> classes;
+        if (ResourceUtils.isJarURL(url)) {
+            classes = scanArchive(url.toString());
+        } else if (ResourceUtils.isFileURL(url)) {
+            classes = scanDirectory(root.getFile().toPath(), rootPath);
+        } else {
+            classes = null;
+        }
+        if (classes == null) {
+            return null;
+        }
+        resourceCount.addAndGet(classes.size());
+        classes.forEach(info -> infos.putIfAbsent(info.getClassName(), info));
+
+        Map<String, Set<String>> matches = new LinkedHashMap<>();
+        for (ClassFileInfo info : classes) {
+            if ((info.isIndependent() && info.isConcrete())
+                    || info.isAbstract()) {
+                Set<String> keys = getMatchingKeys(info);
+                if (!keys.isEmpty()) {
+                    matches.put(info.getClassName(), keys);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the number of class files read so far.
+     *
+     * @return the number of class files
+     */
+    int getResourceCount() {
+        return resourceCount.get();
+    }
+
+    private List<ClassFileInfo> scanDirectory(Path directory, String rootPath)
+            throws IOException {
+        List<ClassFileInfo> classes = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Iterator<Path> iterator = paths.iterator(); iterator
+                    .hasNext();) {
+                Path path = iterator.next();
+                String relativePath = rootPath + directory.relativize(path)
+                        .toString().replace(File.separatorChar, '/');
+                if (relativePath.endsWith(CLASS_SUFFIX)
+                        && pathFilter.test(relativePath)
+                        && Files.isRegularFile(path)) {
+                    classes.add(parse(ByteBuffer.wrap(Files.readAllBytes(path)),
+                            path));
+                }
+            }
+        }
+        return classes;
+    }
+
+    private List<ClassFileInfo> scanArchive(String url) throws IOException {
+        // jar:file:/app.jar!/BOOT-INF/lib/lib.jar!/com/example/
+        String[] segments = url
+                .substring(ResourceUtils.JAR_URL_PREFIX.length())
+                .split(ResourceUtils.JAR_URL_SEPARATOR, -1);
+        if (segments.length < 2
+                || !segments[0].startsWith(ResourceUtils.FILE_URL_PREFIX)) {
+            return null;
+        }
+        String archiveUrl = segments[0];
+        MappedZip zip = openArchive(archiveUrl, null, null);
+        String directory = "";
+        for (int i = 1; zip != null && i < segments.length - 1; i++) {
+            String segment = segments[i];
+            MappedZip nested = null;
+            if (segment.endsWith(".jar")) {
+                nested = openArchive(archiveUrl + "!/" + segment, zip,
+                        directory + segment);
+                if (nested == null) {
+                    return null;
+                }
+            }
+            if (nested != null) {
+                archiveUrl += "!/" + segment;
+                zip = nested;
+                directory = "";
+            } else {
+                // A directory such as BOOT-INF/classes
+                directory += segment + "/";
+            }
+        }
+        if (zip == null) {
+            return null;
+        }
+        String prefix = directory + segments[segments.length - 1];
+        String entryDirectory = directory;
+        List<ClassFileInfo> classes = new ArrayList<>();
+        zip.forEach(entry -> {
+            if (entry.nameMatches(prefix, CLASS_SUFFIX)
+                    && !entry.isDirectory()) {
+                String name = entry.getName();
+                if (pathFilter
+                        .test(name.substring(entryDirectory.length()))) {
+                    classes.add(parse(entry.getContent(), name));
+                }
+            }
+        });
+        return classes;
+    }
+
+    /**
+     * Opens an archive or an archive nested in another one once for the whole
+     * scan.
+     *
+     * @return the archive or {@code null} if it is not supported
+     */
+    private MappedZip openArchive(String url, MappedZip parent,
+            String entryName) throws IOException {
+        MappedZip zip = archives.get(url);
+        if (zip != null || archives.containsKey(url)) {
+            return zip;
+        }
+        try {
+            if (parent == null) {
+                zip = MappedZip.open(Paths.get(ResourceUtils.toURI(url)));
+            } else {
+                ByteBuffer content = parent.getContent(entryName);
+                zip = content == null ? null : new MappedZip(content);
+            }
+        } catch (URISyntaxException | IOException e) {
+            getLogger().debug("Unable to map {}, falling back to scanning it",
+                    url, e);
+            zip = null;
+        }
+        if (zip != null) {
+            MappedZip previous = archives.putIfAbsent(url, zip);
+            return previous != null ? previous : zip;
+        }
+        return null;
+    }
+
+    private ClassFileInfo parse(ByteBuffer content, Object source) {
+        try {
+            return ClassFileInfo.parse(content);
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException(
+                    "Failed to read candidate component class: " + source, e);
+        }
+    }
+
+    private Set<String> getMatchingKeys(ClassFileInfo info) {
+        Set<String> keys = new LinkedHashSet<>();
+        annotations.forEach((annotation, inherited) -> {
+            if (hasAnnotation(info, annotation, inherited)) {
+                keys.add(annotation);
+            }
+        });
+        Set<String> classSuperTypes = getSuperTypes(info.getClassName());
+        for (String type : types) {
+            if (type.equals(info.getClassName())
+                    || classSuperTypes.contains(type)) {
+                keys.add(type);
+            }
+        }
+        return keys;
+    }
+
+    private boolean hasAnnotation(ClassFileInfo info, String annotation,
+            boolean inherited) {
+        for (String present : info.getAnnotationNames()) {
+            if (!isPlainAnnotation(present) && (annotation.equals(present)
+                    || getMetaAnnotations(present).contains(annotation))) {
+                return true;
+            }
+        }
+        String superClassName = info.getSuperClassName();
+        if (inherited && superClassName != null
+                && !superClassName.startsWith("java")) {
+            ClassFileInfo superClass = getInfo(superClassName);
+            return superClass != null
+                    && hasAnnotation(superClass, annotation, true);
+        }
+        return false;
+    }
+
+    /**
+     * Gets all the super classes and interfaces of a class, up to the first
+     * JDK type of each branch the same way as Spring type filters stop there.
+     */
+    private Set<String> getSuperTypes(String className) {
+        Set<String> result = superTypes.get(className);
+        if (result != null) {
+            return result;
+        }
+        ClassFileInfo info = getInfo(className);
+        if (info == null) {
+            result = Collections.emptySet();
+        } else {
+            result = new HashSet<>();
+            List<String> direct = new ArrayList<>(info.getInterfaceNames());
+            if (info.getSuperClassName() != null) {
+                direct.add(info.getSuperClassName());
+            }
+            for (String type : direct) {
+                if (!type.startsWith("java")) {
+                    result.add(type);
+                    result.addAll(getSuperTypes(type));
+                }
+            }
+        }
+        Set<String> previous = superTypes.putIfAbsent(className, result);
+        return previous != null ? previous : result;
+    }
+
+    /**
+     * Gets the annotations present on an annotation type, directly or through
+     * other annotations, using reflection like Spring does for the annotations
+     * found in class files.
+     */
+    private Set<String> getMetaAnnotations(String annotationName) {
+        Set<String> result = metaAnnotations.get(annotationName);
+        if (result != null) {
+            return result;
+        }
+        result = new HashSet<>();
+        try {
+            collectMetaAnnotations(
+                    ClassUtils.forName(annotationName, classLoader), result);
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Not loadable, ignored the same way as Spring does
+        }
+        Set<String> previous = metaAnnotations.putIfAbsent(annotationName,
+                result);
+        return previous != null ? previous : result;
+    }
+
+    private void collectMetaAnnotations(Class<?> annotationType,
+            Set<String> result) {
+        for (Annotation annotation : annotationType.getDeclaredAnnotations()) {
+            String name = annotation.annotationType().getName();
+            if (!isPlainAnnotation(name) && result.add(name)) {
+                collectMetaAnnotations(annotation.annotationType(), result);
+            }
+        }
+    }
+
+    private ClassFileInfo getInfo(String className) {
+        ClassFileInfo info = infos.get(className);
+        if (info != null || missingClasses.contains(className)) {
+            return info;
+        }
+        String path = ClassUtils.convertClassNameToResourcePath(className)
+                + CLASS_SUFFIX;
+        try (InputStream stream = classLoader.getResourceAsStream(path)) {
+            if (stream != null) {
+                info = parse(ByteBuffer.wrap(FileCopyUtils.copyToByteArray(
+                        stream)), path);
+            }
+        } catch (IOException e) {
+            getLogger().debug("Unable to read {}", path, e);
+        }
+        if (info == null) {
+            // Skipped the same way as Spring does for unreadable super types
+            missingClasses.add(className);
+            return null;
+        }
+        ClassFileInfo previous = infos.putIfAbsent(className, info);
+        return previous != null ? previous : info;
+    }
+
+    private static boolean isPlainAnnotation(String annotationName) {
+        return annotationName.startsWith("java.lang.")
+                || annotationName.startsWith("org.springframework.lang.");
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(MappedClassScanner.class);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Minimal read only zip file reader working on a {@link ByteBuffer}, usually a
+ * memory mapped jar file.
+ * <p>
+ * The central directory is read once and walked in place: entry names are
+ * only decoded for the entries a visitor asks for, and stored entries (such as
+ * the nested jars of a Spring Boot executable jar) are returned as slices of
+ * the underlying buffer without copying. Zip64 archives are not supported.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class MappedZip {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private final ByteBuffer buffer;
+
+    private final int base;
+
+    private final int centralDirectory;
+
+    private final int entryCount;
+
+    /**
+     * Visitor of the entries of a zip file.
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+        /**
+         * Called for each entry of the central directory.
+         *
+         * @param entry
+         *            the entry, only valid during the call
+         * @throws IOException
+         *             if the entry cannot be handled
+         */
+        void visit(Entry entry) throws IOException;
+    }
+
+    /**
+     * An entry of the central directory.
+     */
+    final class Entry {
+        private int offset;
+
+        private Entry(int offset) {
+            this.offset = offset;
+        }
+
+        /**
+         * Checks the entry name without decoding it.
+         *
+         * @param prefix
+         *            the required start of the name
+         * @param suffix
+         *            the required end of the name
+         * @return whether the name starts and ends with the given ASCII
+         *         strings
+         */
+        boolean nameMatches(String prefix, String suffix) {
+            int length = getNameLength();
+            if (length < prefix.length() + suffix.length()) {
+                return false;
+            }
+            int name = offset + 46;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (buffer.get(name + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            int end = name + length - suffix.length();
+            for (int i = 0; i < suffix.length(); i++) {
+                if (buffer.get(end + i) != suffix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String getName() {
+            byte[] name = new byte[getNameLength()];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = buffer.get(offset + 46 + i);
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        boolean isDirectory() {
+            int length = getNameLength();
+            return length > 0 && buffer.get(offset + 46 + length - 1) == '/';
+        }
+
+        /**
+         * Gets the uncompressed content of the entry. Stored entries are
+         * returned as a slice of the zip buffer, deflated entries are
+         * inflated.
+         *
+         * @return the content, positioned at zero
+         * @throws IOException
+         *             if the entry is compressed with an unsupported method or
+         *             cannot be inflated
+         */
+        ByteBuffer getContent() throws IOException {
+            int method = Short.toUnsignedInt(buffer.getShort(offset + 10));
+            int compressedSize = buffer.getInt(offset + 20);
+            int size = buffer.getInt(offset + 24);
+            int local = base + buffer.getInt(offset + 42);
+            if (buffer.getInt(local) != LOCAL_HEADER) {
+                throw new IOException("Invalid local header");
+            }
+            int data = local + 30
+                    + Short.toUnsignedInt(buffer.getShort(local + 26))
+                    + Short.toUnsignedInt(buffer.getShort(local + 28));
+            if (method == STORED) {
+                return slice(data, size);
+            } else if (method == DEFLATED) {
+                return inflate(data, compressedSize, size);
+            }
+            throw new IOException("Unsupported compression method " + method);
+        }
+
+        private int getNameLength() {
+            return Short.toUnsignedInt(buffer.getShort(offset + 28));
+        }
+
+        private int getNext() {
+            return offset + 46 + getNameLength()
+                    + Short.toUnsignedInt(buffer.getShort(offset + 30))
+                    + Short.toUnsignedInt(buffer.getShort(offset + 32));
+        }
+    }
+
+    /**
+     * Reads the central directory of the zip file contained in the given
+     * buffer.
+     *
+     * @param buffer
+     *            the zip file content
+     * @throws IOException
+     *             if the buffer does not contain a supported zip file
+     */
+    MappedZip(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEndOfCentralDirectory();
+        int count = Short.toUnsignedInt(this.buffer.getShort(end + 10));
+        long size = Integer.toUnsignedLong(this.buffer.getInt(end + 12));
+        long offset = Integer.toUnsignedLong(this.buffer.getInt(end + 16));
+        if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+            throw new IOException("Zip64 archives are not supported");
+        }
+        // Data may be prepended to the archive, e.g. a launch script
+        base = (int) (end - size - offset);
+        if (base < 0) {
+            throw new IOException("Invalid central directory");
+        }
+        centralDirectory = (int) (base + offset);
+        entryCount = count;
+    }
+
+    /**
+     * Memory maps the given zip file.
+     *
+     * @param file
+     *            the zip file
+     * @return the zip file reader
+     * @throws IOException
+     *             if the file cannot be mapped or is not a supported zip file
+     */
+    static MappedZip open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Zip file too large: " + file);
+            }
+            return new MappedZip(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        }
+    }
+
+    /**
+     * Visits all the entries of the central directory in their order.
+     *
+     * @param visitor
+     *            the visitor to call for each entry
+     * @throws IOException
+     *             if the visitor throws or the directory is invalid
+     */
+    void forEach(EntryVisitor visitor) throws IOException {
+        Entry entry = new Entry(centralDirectory);
+        for (int i = 0; i < entryCount; i++) {
+            if (buffer.getInt(entry.offset) != CENTRAL_DIRECTORY_ENTRY) {
+                throw new IOException("Invalid central directory entry");
+            }
+            int next = entry.getNext();
+            visitor.visit(entry);
+            entry.offset = next;
+        }
+    }
+
+    /**
+     * Finds an entry by its name.
+     *
+     * @param name
+     *            the entry name
+     * @return the content of the entry or {@code null} if there is no such
+     *         entry
+     * @throws IOException
+     *             if the directory is invalid or the entry cannot be read
+     */
+    ByteBuffer getContent(String name) throws IOException {
+        ByteBuffer[] content = new ByteBuffer[1];
+        forEach(entry -> {
+            if (content[0] == null && !entry.isDirectory()
+                    && entry.nameMatches(name, "")
+                    && entry.getNameLength() == name.length()) {
+                content[0] = entry.getContent();
+            }
+        });
+        return content[0];
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - 0xFFFF);
+        for (int position = last; position >= first; position--) {
+            if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        throw new IOException("Not a zip file");
+    }
+
+    private ByteBuffer slice(int position, int size) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + size);
+        return slice.slice();
+    }
+
+    private ByteBuffer inflate(int position, int compressedSize, int size)
+            throws IOException {
+        // The extra byte is required by the inflater in "nowrap" mode
+        byte[] input = new byte[compressedSize + 1];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(input, 0, compressedSize);
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                int inflated = inflater.inflate(output, length,
+                        size - length);
+                if (inflated == 0 && (inflater.needsInput()
+                        || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != size) {
+                throw new IOException("Truncated entry");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(output);
+    }
+}
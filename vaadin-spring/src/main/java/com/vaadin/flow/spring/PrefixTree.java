@@ -16,57 +16,196 @@
 package com.vaadin.flow.spring;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Quick prefix lookup for package inclusion and exclusion lists.
+ * <p>
+ * The prefixes are stored in a radix tree: every edge holds the whole run of
+ * characters shared by the prefixes below it and the children of a node are
+ * kept in arrays sorted by their first character. A lookup thus compares the
+ * looked up string with the edge labels and does one binary search per
+ * branching node.
+ * <p>
+ * Each prefix carries an {@code int} marker. {@link #match(String)} returns
+ * the markers of all prefixes of a string, so that several lists (e.g. allowed
+ * and blocked packages) can be checked with a single walk.
+ * {@link #matchExtensions(String)} tells which markers are used by longer
+ * prefixes, e.g. to know whether a whole directory can be skipped.
  */
 class PrefixTree implements Serializable {
 
-    private final Node root;
+    /**
+     * Marker of the prefixes added without an explicit marker.
+     */
+    static final int DEFAULT_MARKER = 1;
+
+    private static final char[] NO_KEYS = new char[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node(NO_KEYS);
 
     PrefixTree(Collection<String> prefixes) {
-        root = new Node();
-        root.terminal = false;
         prefixes.forEach(this::addPrefix);
     }
 
     void addPrefix(String prefix) {
+        addPrefix(prefix, DEFAULT_MARKER);
+    }
+
+    /**
+     * Adds a prefix with the given marker bits.
+     *
+     * @param prefix
+     *            the prefix to add, not empty
+     * @param marker
+     *            the marker bits to return from {@link #match(String)} for
+     *            strings starting with the prefix, not {@code 0}
+     */
+    void addPrefix(String prefix, int marker) {
         if (prefix.isEmpty()) {
             throw new IllegalArgumentException("empty prefix");
         }
-        root.addPrefix(prefix);
+        if (marker == 0) {
+            throw new IllegalArgumentException("empty marker");
+        }
+        Node node = root;
+        node.descendantMarker |= marker;
+        int index = 0;
+        while (index < prefix.length()) {
+            int position = Arrays.binarySearch(node.keys,
+                    prefix.charAt(index));
+            if (position < 0) {
+                node.insert(-position - 1, new Node(
+                        prefix.substring(index).toCharArray()));
+                node = node.children[-position - 1];
+                index = prefix.length();
+            } else {
+                Node child = node.children[position];
+                int common = child.commonLength(prefix, index);
+                if (common < child.label.length) {
+                    child = child.split(common);
+                    node.children[position] = child;
+                }
+                node = child;
+                index += common;
+            }
+            node.descendantMarker |= marker;
+        }
+        node.marker |= marker;
     }
 
     boolean hasPrefix(String s) {
+        return match(s) != 0;
+    }
+
+    /**
+     * Gets the combined markers of all the prefixes of the given string.
+     *
+     * @param s
+     *            the string to match
+     * @return the markers of the matching prefixes or {@code 0} if there is
+     *         none
+     */
+    int match(String s) {
+        int result = 0;
         Node node = root;
-        final int slen = s.length();
-        int sidx = 0;
-        while (node != null) {
-            if (node.terminal) {
-                return true;
-            } else if (sidx < slen) {
-                node = node.children.get(s.charAt(sidx++));
-            } else {
-                return false;
+        int index = 0;
+        final int length = s.length();
+        while (index < length) {
+            int position = Arrays.binarySearch(node.keys, s.charAt(index));
+            if (position < 0) {
+                break;
             }
+            node = node.children[position];
+            if (node.commonLength(s, index) < node.label.length) {
+                break;
+            }
+            index += node.label.length;
+            result |= node.marker;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the combined markers of all the prefixes which start with the given
+     * string, including the string itself.
+     *
+     * @param s
+     *            the string to match
+     * @return the markers of the prefixes starting with {@code s} or
+     *         {@code 0} if there is none
+     */
+    int matchExtensions(String s) {
+        Node node = root;
+        int index = 0;
+        final int length = s.length();
+        while (index < length) {
+            int position = Arrays.binarySearch(node.keys, s.charAt(index));
+            if (position < 0) {
+                return 0;
+            }
+            node = node.children[position];
+            int common = node.commonLength(s, index);
+            if (index + common == length) {
+                return node.descendantMarker;
+            } else if (common < node.label.length) {
+                return 0;
+            }
+            index += common;
         }
-        return false;
+        return node.descendantMarker;
     }
 
-    static class Node implements Serializable {
-        private final Map<Character, Node> children = new HashMap<>();
-        private boolean terminal = true;
+    private static class Node implements Serializable {
+        private char[] label;
+        private int marker;
+        private int descendantMarker;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
 
-        void addPrefix(String prefix) {
-            terminal = false;
-            char ch = prefix.charAt(0);
-            children.putIfAbsent(ch, new Node());
-            if (prefix.length() > 1) {
-                children.get(ch).addPrefix(prefix.substring(1));
+        private Node(char[] label) {
+            this.label = label;
+        }
+
+        private int commonLength(String s, int offset) {
+            int max = Math.min(label.length, s.length() - offset);
+            int common = 0;
+            while (common < max
+                    && label[common] == s.charAt(offset + common)) {
+                common++;
             }
+            return common;
+        }
+
+        private void insert(int position, Node child) {
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newKeys[position] = child.label[0];
+            newChildren[position] = child;
+            System.arraycopy(keys, position, newKeys, position + 1,
+                    keys.length - position);
+            System.arraycopy(children, position, newChildren, position + 1,
+                    children.length - position);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        /**
+         * Splits the label after {@code length} characters and returns the
+         * new parent holding the first part of the label.
+         */
+        private Node split(int length) {
+            Node parent = new Node(Arrays.copyOf(label, length));
+            parent.descendantMarker = descendantMarker;
+            label = Arrays.copyOfRange(label, length, label.length);
+            parent.keys = new char[] { label[0] };
+            parent.children = new Node[] { this };
+            return parent;
         }
     }
 }
@@ -15,12 +15,17 @@
  */
 package com.vaadin.flow.spring;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
 
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.di.DefaultInstantiator;
@@ -28,6 +33,7 @@ import com.vaadin.flow.i18n.I18NProvider;
 import com.vaadin.flow.internal.UsageStatistics;
 import com.vaadin.flow.server.VaadinService;
 import com.vaadin.flow.server.VaadinServiceInitListener;
+import com.vaadin.flow.spring.i18n.CachingI18NProvider;
 
 /**
  * Default Spring instantiator that is used if no other instantiator has been
@@ -40,6 +46,28 @@ public class SpringInstantiator extends DefaultInstantiator {
     private ApplicationContext context;
     private AtomicBoolean loggingEnabled = new AtomicBoolean(true);
 
+    /**
+     * Tells when the values below, derived from the beans, are dropped.
+     */
+    private final BeanRegistrationTracker registrations;
+
+    /**
+     * Names of the beans of each type requested through
+     * {@link #getOrCreate(Class)}, for the types having beans.
+     */
+    private final Map<Class<?>, String[]> beanNamesByType = new ConcurrentHashMap<>();
+
+    /**
+     * Factory of the components, created on first use.
+     */
+    private volatile ComponentBeanFactory componentFactory;
+
+    /**
+     * The I18N provider bean, resolved on first use. Only set if the bean is
+     * a singleton.
+     */
+    private volatile I18NProvider i18nProvider;
+
     /**
      * Creates a new spring instantiator instance.
      *
@@ -52,6 +80,7 @@ public class SpringInstantiator extends DefaultInstantiator {
             ApplicationContext context) {
         super(service);
         this.context = context;
+        registrations = new BeanRegistrationTracker(context);
 
         UsageStatistics.markAsUsed("flow/SpringInstantiator", null);
     }
@@ -64,17 +93,53 @@ public class SpringInstantiator extends DefaultInstantiator {
         return Stream.concat(super.getServiceInitListeners(), springListeners);
     }
 
+    /**
+     * Creates a new component instance as a prototype bean. The resolved
+     * constructor and injection metadata of each component class are kept
+     * between instances, see {@link ComponentBeanFactory}.
+     */
     @Override
     public <T extends Component> T createComponent(Class<T> componentClass) {
-        return context.getAutowireCapableBeanFactory()
-                .createBean(componentClass);
+        checkRegistrations();
+        ComponentBeanFactory factory = componentFactory;
+        if (factory == null) {
+            AutowireCapableBeanFactory beanFactory = context
+                    .getAutowireCapableBeanFactory();
+            if (!(beanFactory instanceof ConfigurableListableBeanFactory)) {
+                return beanFactory.createBean(componentClass);
+            }
+            factory = new ComponentBeanFactory(
+                    (ConfigurableListableBeanFactory) beanFactory);
+            componentFactory = factory;
+        }
+        return factory.createComponent(componentClass);
     }
 
+    /**
+     * Gets the I18N provider bean if there is exactly one, falling back to
+     * the default behavior otherwise. A singleton provider is resolved once
+     * and, if the {@code vaadin.i18n-cache-size} property is set, wrapped in
+     * a {@link CachingI18NProvider} keeping that many translations.
+     */
     @Override
     public I18NProvider getI18NProvider() {
-        int beansCount = context.getBeanNamesForType(I18NProvider.class).length;
+        checkRegistrations();
+        I18NProvider provider = i18nProvider;
+        if (provider != null) {
+            return provider;
+        }
+        String[] beanNames = context.getBeanNamesForType(I18NProvider.class);
+        int beansCount = beanNames.length;
         if (beansCount == 1) {
-            return context.getBean(I18NProvider.class);
+            provider = context.getBean(beanNames[0], I18NProvider.class);
+            if (context.isSingleton(beanNames[0])) {
+                int cacheSize = getI18NCacheSize();
+                if (cacheSize > 0) {
+                    provider = new CachingI18NProvider(provider, cacheSize);
+                }
+                i18nProvider = provider;
+            }
+            return provider;
         } else {
             if (loggingEnabled.compareAndSet(true, false)) {
                 LoggerFactory.getLogger(SpringInstantiator.class.getName())
@@ -99,12 +164,17 @@ public class SpringInstantiator extends DefaultInstantiator {
      * "use" a bean but have multiple in the context. So the hint helps them
      * find the problem.</li>
      * </ul>
+     * The bean names of each type having beans are cached until the number of
+     * bean definitions changes or the context is refreshed. Types without
+     * beans are looked up again on every call, so that a singleton registered
+     * later is found.
      */
     @Override
     public <T> T getOrCreate(Class<T> type) {
-        if (context.getBeanNamesForType(type).length == 1) {
-            return context.getBean(type);
-        } else if (context.getBeanNamesForType(type).length > 1) {
+        String[] beanNames = getBeanNames(type);
+        if (beanNames.length == 1) {
+            return context.getBean(beanNames[0], type);
+        } else if (beanNames.length > 1) {
             try {
                 return context.getAutowireCapableBeanFactory().createBean(type);
             } catch (BeanInstantiationException e) {
@@ -117,4 +187,31 @@ public class SpringInstantiator extends DefaultInstantiator {
             return context.getAutowireCapableBeanFactory().createBean(type);
         }
     }
+
+    private String[] getBeanNames(Class<?> type) {
+        checkRegistrations();
+        String[] beanNames = beanNamesByType.get(type);
+        if (beanNames == null) {
+            beanNames = context.getBeanNamesForType(type);
+            if (beanNames.length > 0) {
+                beanNamesByType.put(type, beanNames);
+            }
+        }
+        return beanNames;
+    }
+
+    private void checkRegistrations() {
+        if (registrations.hasChanged()) {
+            beanNamesByType.clear();
+            componentFactory = null;
+            i18nProvider = null;
+        }
+    }
+
+    private int getI18NCacheSize() {
+        Environment environment = context.getEnvironment();
+        return environment == null ? 0
+                : environment.getProperty("vaadin.i18n-cache-size",
+                        Integer.class, 0);
+    }
 }
@@ -20,14 +20,26 @@ import javax.servlet.ServletException;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
@@ -48,6 +60,13 @@ public class SpringLookupInitializer extends LookupInitializer {
 
     private static final Object LOCK = new Object();
 
+    /**
+     * The minimum number of implementation classes to instantiate for them to
+     * be instantiated concurrently. For fewer classes, starting the threads
+     * costs more than it saves.
+     */
+    private static final int PARALLEL_INSTANTIATION_THRESHOLD = 8;
+
     private static interface BootstrapCallable {
 
         void execute() throws ServletException;
@@ -57,21 +76,71 @@ public class SpringLookupInitializer extends LookupInitializer {
         private WebApplicationContext appContext;
     }
 
+    /**
+     * Lookup of the Spring beans along with the service implementations found
+     * in the classpath.
+     * <p>
+     * The services found for each service class having beans are kept until
+     * the number of bean definitions changes or the context is refreshed,
+     * unless some of the beans are not singletons. Service classes without
+     * beans are looked up again on every call, so that a singleton registered
+     * later is found.
+     */
     private static class SpringLookup extends LookupImpl {
 
         private final WebApplicationContext context;
 
+        private final Map<Class<?>, Object> services = new ConcurrentHashMap<>();
+
+        private final Map<Class<?>, Collection<?>> allServices = new ConcurrentHashMap<>();
+
+        private final BeanRegistrationTracker registrations;
+
         private SpringLookup(WebApplicationContext context,
                 BiFunction<Class<?>, Class<?>, Object> factory,
                 Map<Class<?>, Collection<Class<?>>> services) {
             super(services, factory);
             this.context = context;
+            registrations = new BeanRegistrationTracker(context);
         }
 
         @Override
         public <T> T lookup(Class<T> serviceClass) {
-            Collection<T> beans = context.getBeansOfType(serviceClass).values();
+            checkRegistrations();
+            Object cached = services.get(serviceClass);
+            if (cached != null) {
+                return serviceClass.cast(cached);
+            }
+            Map<String, T> beans = context.getBeansOfType(serviceClass);
+            T service = lookup(serviceClass, beans.values());
+            if (isCacheable(beans)) {
+                services.put(serviceClass, service);
+            }
+            return service;
+        }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> Collection<T> lookupAll(Class<T> serviceClass) {
+            checkRegistrations();
+            Collection<T> cached = (Collection<T>) allServices
+                    .get(serviceClass);
+            if (cached != null) {
+                return cached;
+            }
+            Map<String, T> beans = context.getBeansOfType(serviceClass);
+            Collection<T> impls = super.lookupAll(serviceClass);
+            List<T> all = new ArrayList<>(beans.size() + impls.size());
+            all.addAll(beans.values());
+            all.addAll(impls);
+            Collection<T> result = Collections.unmodifiableList(all);
+            if (isCacheable(beans)) {
+                allServices.put(serviceClass, result);
+            }
+            return result;
+        }
+
+        private <T> T lookup(Class<T> serviceClass, Collection<T> beans) {
             // Check whether we have service objects instantiated without Spring
             T service = super.lookup(serviceClass);
 
@@ -96,12 +165,16 @@ public class SpringLookupInitializer extends LookupInitializer {
                     + allFound + ONE_IMPL_REQUIRED);
         }
 
-        @Override
-        public <T> Collection<T> lookupAll(Class<T> serviceClass) {
-            return Stream
-                    .concat(context.getBeansOfType(serviceClass).values()
-                            .stream(), super.lookupAll(serviceClass).stream())
-                    .collect(Collectors.toList());
+        private boolean isCacheable(Map<String, ?> beans) {
+            return !beans.isEmpty()
+                    && beans.keySet().stream().allMatch(context::isSingleton);
+        }
+
+        private void checkRegistrations() {
+            if (registrations.hasChanged()) {
+                services.clear();
+                allServices.clear();
+            }
         }
 
     }
@@ -164,8 +237,10 @@ public class SpringLookupInitializer extends LookupInitializer {
     protected Lookup createLookup(VaadinContext context,
             Map<Class<?>, Collection<Class<?>>> services) {
         WebApplicationContext appContext = getApplicationContext(context);
+        Map<Class<?>, Map<Class<?>, Object>> instances = instantiate(
+                appContext, services);
         return new SpringLookup(appContext,
-                (spi, impl) -> instantiate(appContext, spi, impl), services);
+                (spi, impl) -> instances.get(spi).get(impl), services);
     }
 
     private void doInitialize(VaadinContext context,
@@ -190,15 +265,127 @@ public class SpringLookupInitializer extends LookupInitializer {
         return appContext;
     }
 
-    private <T> T instantiate(WebApplicationContext context,
-            Class<T> serviceClass, Class<?> impl) {
-        Collection<T> beans = context.getBeansOfType(serviceClass).values();
-        if (beans.stream().anyMatch(bean -> impl.isInstance(bean))) {
-            // implementation classes found in classpath are ignored if there
-            // are beans which are subclasses of these impl classes
-            return null;
-        } else {
-            return instantiate(serviceClass, impl);
+    /**
+     * Instantiates the service implementation classes found in the classpath,
+     * concurrently if there are many of them.
+     * <p>
+     * The beans of each service class are resolved once, from the calling
+     * thread since the context may be in the middle of its refresh, and an
+     * implementation class is ignored if there is a bean which is an instance
+     * of it.
+     *
+     * @param context
+     *            the application context
+     * @param services
+     *            the implementation classes by service class
+     * @return the implementation instances by service and implementation
+     *         class, {@code null} for the ignored implementation classes
+     */
+    private Map<Class<?>, Map<Class<?>, Object>> instantiate(
+            WebApplicationContext context,
+            Map<Class<?>, Collection<Class<?>>> services) {
+        LongAdder instantiationTime = new LongAdder();
+        Map<Class<?>, Map<Class<?>, Future<Object>>> tasks = new HashMap<>();
+        List<FutureTask<Object>> pending = new ArrayList<>();
+        services.forEach((spi, impls) -> {
+            Collection<?> beans = context.getBeansOfType(spi).values();
+            Map<Class<?>, Future<Object>> implTasks = new HashMap<>();
+            for (Class<?> impl : impls) {
+                // implementation classes found in classpath are ignored if
+                // there are beans which are subclasses of these impl classes
+                if (beans.stream().noneMatch(impl::isInstance)) {
+                    FutureTask<Object> task = new FutureTask<>(() -> {
+                        long start = System.nanoTime();
+                        try {
+                            return instantiate(spi, impl);
+                        } finally {
+                            instantiationTime.add(System.nanoTime() - start);
+                        }
+                    });
+                    pending.add(task);
+                    implTasks.put(impl, task);
+                }
+            }
+            tasks.put(spi, implTasks);
+        });
+
+        int parallelism = Math.min(pending.size(),
+                Runtime.getRuntime().availableProcessors());
+        if (pending.size() < PARALLEL_INSTANTIATION_THRESHOLD) {
+            parallelism = 1;
+        }
+        StartupStep step = getApplicationStartup(context).start(
+                VaadinServletContextInitializer.STARTUP_STEP_PREFIX
+                        + "lookup.services");
+        try {
+            if (parallelism > 1) {
+                // Threads are created from the calling thread and inherit
+                // its context class loader
+                ExecutorService executor = Executors.newFixedThreadPool(
+                        parallelism, task -> {
+                            Thread thread = new Thread(task,
+                                    "vaadin-lookup-initializer");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                try {
+                    pending.forEach(executor::execute);
+                    return getInstances(tasks);
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+            pending.forEach(FutureTask::run);
+            return getInstances(tasks);
+        } finally {
+            step.tag("services", String.valueOf(pending.size()));
+            step.tag("threads", String.valueOf(parallelism));
+            step.tag("instantiation-time-ms", String.valueOf(
+                    TimeUnit.NANOSECONDS.toMillis(instantiationTime.sum())));
+            step.end();
+        }
+    }
+
+    private static ApplicationStartup getApplicationStartup(
+            ApplicationContext context) {
+        if (context instanceof ConfigurableApplicationContext) {
+            return ((ConfigurableApplicationContext) context)
+                    .getApplicationStartup();
+        }
+        return ApplicationStartup.DEFAULT;
+    }
+
+    private static Map<Class<?>, Map<Class<?>, Object>> getInstances(
+            Map<Class<?>, Map<Class<?>, Future<Object>>> tasks) {
+        Map<Class<?>, Map<Class<?>, Object>> instances = new HashMap<>();
+        for (Map.Entry<Class<?>, Map<Class<?>, Future<Object>>> entry : tasks
+                .entrySet()) {
+            Map<Class<?>, Object> implInstances = new HashMap<>();
+            for (Map.Entry<Class<?>, Future<Object>> task : entry.getValue()
+                    .entrySet()) {
+                implInstances.put(task.getKey(), getInstance(task.getValue()));
+            }
+            instances.put(entry.getKey(), implInstances);
+        }
+        return instances;
+    }
+
+    private static Object getInstance(Future<Object> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while instantiating the lookup services",
+                    exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
         }
     }
 
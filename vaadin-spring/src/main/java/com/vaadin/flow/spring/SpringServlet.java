@@ -15,6 +15,7 @@
  */
 package com.vaadin.flow.spring;
 
+import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -105,9 +106,22 @@ public class SpringServlet extends VaadinServlet {
         this.rootMapping = rootMapping;
     }
 
+    @Override
+    public void init(ServletConfig servletConfig) throws ServletException {
+        // The service reads the route registry on init, e.g. the PWA
+        // registry caches the @PWA class found by the route registration
+        DeferredRouteRegistration.await(servletConfig.getServletContext());
+        super.init(servletConfig);
+    }
+
     @Override
     protected void service(HttpServletRequest request,
             HttpServletResponse response) throws ServletException, IOException {
+        if (DevModeInitialization.writePlaceholderIfRunning(
+                getServletContext(), request, response)) {
+            return;
+        }
+        DeferredRouteRegistration.await(getServletContext());
         super.service(wrapRequest(request), response);
     }
 
@@ -57,6 +57,99 @@ public class VaadinConfigurationProperties {
      */
     private List<String> allowedPackages = new ArrayList<>();
 
+    /**
+     * Whether a META-INF/vaadin-spring.idx type index generated at build time
+     * should be ignored and the class path scanned instead.
+     */
+    private boolean ignoreTypeIndex = false;
+
+    /**
+     * Whether the class path roots are scanned in parallel on startup.
+     */
+    private boolean parallelScan = false;
+
+    /**
+     * Whether the development mode class scanning results are cached in the
+     * target or build directory of the project and reused for unchanged
+     * directories and jars on restart.
+     */
+    private boolean devModeScanCache = false;
+
+    /**
+     * Whether class files in local directories and jars are read directly,
+     * with jars memory mapped, instead of through Spring resources when
+     * scanning the class path. {@code @Conditional} annotations are not
+     * evaluated for the scanned classes.
+     */
+    private boolean mappedClassScan = false;
+
+    /**
+     * Whether the route classes are loaded and registered in a background
+     * thread on startup. The initialization of the Vaadin servlet and the
+     * requests to it wait until the routes have been registered.
+     */
+    private boolean lazyRouteRegistration = false;
+
+    /**
+     * Whether the development mode class scanning and handler initialization
+     * run in a background thread. The Vaadin servlet answers page requests
+     * with a placeholder page until they are done, and fails every request if
+     * they fail.
+     */
+    private boolean devModeBackgroundInit = false;
+
+    /**
+     * Whether the beans of the Vaadin session and UI scopes are tracked and
+     * reported, with their approximate heap footprint, by the
+     * {@code vaadinScopesFootprint} bean.
+     */
+    private boolean scopeFootprint = false;
+
+    /**
+     * Time in seconds after which the UI scoped beans of a UI not accessed are
+     * passivated, if positive. Only serializable targets of scoped proxies
+     * without destruction callbacks are passivated. A restored bean has its
+     * dependencies injected again but is not initialized again, e.g. its
+     * {@code @PostConstruct} methods do not run.
+     */
+    private int uiScopePassivationTimeout = 0;
+
+    /**
+     * Whether the creation and destruction of the bean stores of the Vaadin
+     * session and UI scopes and the instantiation of the scoped beans are
+     * recorded by the {@code vaadinScopesMetrics} bean.
+     */
+    private boolean scopeMetrics = false;
+
+    /**
+     * Time in milliseconds above which the destruction of the beans of a
+     * session or a UI, holding the session lock, logs a warning, if positive.
+     * Requires {@code vaadin.scope-metrics}.
+     */
+    private long scopeDestructionWarningThreshold = 0;
+
+    /**
+     * Whether the destruction callbacks of the Vaadin session and UI scoped
+     * beans run in a bounded thread pool after the session lock has been
+     * released, instead of while holding it. The callbacks then run without
+     * the session lock, with no current session or UI, and possibly
+     * concurrently with requests of the same session: they must not access
+     * components or call Vaadin scoped proxies.
+     */
+    private boolean scopeAsyncDestruction = false;
+
+    /**
+     * Maximum number of beans marked as evictable kept in a Vaadin session,
+     * the least recently used ones being evicted, if positive.
+     */
+    private int maxEvictableSessionBeans = 0;
+
+    /**
+     * Maximum number of translations of the I18N provider bean cached by key,
+     * locale and parameters, if positive.
+     */
+    private int i18nCacheSize = 0;
+
     /**
      * Gets the url mapping for the Vaadin servlet.
      *
@@ -192,4 +285,244 @@ public class VaadinConfigurationProperties {
     public void setAllowedPackages(List<String> allowedPackages) {
         this.allowedPackages = new ArrayList<>(allowedPackages);
     }
+
+    /**
+     * Returns if the type index generated at build time is ignored.
+     *
+     * @return if the type index is ignored
+     */
+    public boolean isIgnoreTypeIndex() {
+        return ignoreTypeIndex;
+    }
+
+    /**
+     * Sets {@code ignoreTypeIndex} property value.
+     *
+     * @param ignoreTypeIndex the {@code ignoreTypeIndex} property value
+     */
+    public void setIgnoreTypeIndex(boolean ignoreTypeIndex) {
+        this.ignoreTypeIndex = ignoreTypeIndex;
+    }
+
+    /**
+     * Returns if the class path roots are scanned in parallel.
+     *
+     * @return if parallel scanning is enabled
+     */
+    public boolean isParallelScan() {
+        return parallelScan;
+    }
+
+    /**
+     * Sets {@code parallelScan} property value.
+     *
+     * @param parallelScan the {@code parallelScan} property value
+     */
+    public void setParallelScan(boolean parallelScan) {
+        this.parallelScan = parallelScan;
+    }
+
+    /**
+     * Returns if the development mode class scanning results are cached.
+     *
+     * @return if the development mode scan cache is enabled
+     */
+    public boolean isDevModeScanCache() {
+        return devModeScanCache;
+    }
+
+    /**
+     * Sets {@code devModeScanCache} property value.
+     *
+     * @param devModeScanCache the {@code devModeScanCache} property value
+     */
+    public void setDevModeScanCache(boolean devModeScanCache) {
+        this.devModeScanCache = devModeScanCache;
+    }
+
+    /**
+     * Returns if class files are read directly when scanning the class path.
+     *
+     * @return if mapped class scanning is enabled
+     */
+    public boolean isMappedClassScan() {
+        return mappedClassScan;
+    }
+
+    /**
+     * Sets {@code mappedClassScan} property value.
+     *
+     * @param mappedClassScan the {@code mappedClassScan} property value
+     */
+    public void setMappedClassScan(boolean mappedClassScan) {
+        this.mappedClassScan = mappedClassScan;
+    }
+
+    /**
+     * Returns if the routes are registered in a background thread.
+     *
+     * @return if lazy route registration is enabled
+     */
+    public boolean isLazyRouteRegistration() {
+        return lazyRouteRegistration;
+    }
+
+    /**
+     * Sets {@code lazyRouteRegistration} property value.
+     *
+     * @param lazyRouteRegistration the {@code lazyRouteRegistration} property value
+     */
+    public void setLazyRouteRegistration(boolean lazyRouteRegistration) {
+        this.lazyRouteRegistration = lazyRouteRegistration;
+    }
+
+    /**
+     * Returns if the development mode is initialized in a background thread.
+     *
+     * @return if background development mode initialization is enabled
+     */
+    public boolean isDevModeBackgroundInit() {
+        return devModeBackgroundInit;
+    }
+
+    /**
+     * Sets {@code devModeBackgroundInit} property value.
+     *
+     * @param devModeBackgroundInit the {@code devModeBackgroundInit} property value
+     */
+    public void setDevModeBackgroundInit(boolean devModeBackgroundInit) {
+        this.devModeBackgroundInit = devModeBackgroundInit;
+    }
+
+    /**
+     * Returns if the footprint of the Vaadin scoped beans is reported.
+     *
+     * @return if scope footprint reporting is enabled
+     */
+    public boolean isScopeFootprint() {
+        return scopeFootprint;
+    }
+
+    /**
+     * Sets {@code scopeFootprint} property value.
+     *
+     * @param scopeFootprint the {@code scopeFootprint} property value
+     */
+    public void setScopeFootprint(boolean scopeFootprint) {
+        this.scopeFootprint = scopeFootprint;
+    }
+
+    /**
+     * Gets the time after which the UI scoped beans of an idle UI are
+     * passivated.
+     *
+     * @return the passivation timeout in seconds, {@code 0} if disabled
+     */
+    public int getUiScopePassivationTimeout() {
+        return uiScopePassivationTimeout;
+    }
+
+    /**
+     * Sets {@code uiScopePassivationTimeout} property value.
+     *
+     * @param uiScopePassivationTimeout the {@code uiScopePassivationTimeout} property value
+     */
+    public void setUiScopePassivationTimeout(int uiScopePassivationTimeout) {
+        this.uiScopePassivationTimeout = uiScopePassivationTimeout;
+    }
+
+    /**
+     * Returns if the metrics of the Vaadin scopes are recorded.
+     *
+     * @return if scope metrics are enabled
+     */
+    public boolean isScopeMetrics() {
+        return scopeMetrics;
+    }
+
+    /**
+     * Sets {@code scopeMetrics} property value.
+     *
+     * @param scopeMetrics the {@code scopeMetrics} property value
+     */
+    public void setScopeMetrics(boolean scopeMetrics) {
+        this.scopeMetrics = scopeMetrics;
+    }
+
+    /**
+     * Gets the destruction time of a bean store above which a warning is
+     * logged.
+     *
+     * @return the warning threshold in milliseconds, {@code 0} if disabled
+     */
+    public long getScopeDestructionWarningThreshold() {
+        return scopeDestructionWarningThreshold;
+    }
+
+    /**
+     * Sets {@code scopeDestructionWarningThreshold} property value.
+     *
+     * @param scopeDestructionWarningThreshold the {@code scopeDestructionWarningThreshold} property value
+     */
+    public void setScopeDestructionWarningThreshold(
+            long scopeDestructionWarningThreshold) {
+        this.scopeDestructionWarningThreshold = scopeDestructionWarningThreshold;
+    }
+
+    /**
+     * Returns if the destruction callbacks of the Vaadin scoped beans run
+     * asynchronously.
+     *
+     * @return if asynchronous scope destruction is enabled
+     */
+    public boolean isScopeAsyncDestruction() {
+        return scopeAsyncDestruction;
+    }
+
+    /**
+     * Sets {@code scopeAsyncDestruction} property value.
+     *
+     * @param scopeAsyncDestruction the {@code scopeAsyncDestruction} property value
+     */
+    public void setScopeAsyncDestruction(boolean scopeAsyncDestruction) {
+        this.scopeAsyncDestruction = scopeAsyncDestruction;
+    }
+
+    /**
+     * Gets the maximum number of evictable beans kept in a Vaadin session.
+     *
+     * @return the maximum number of evictable session beans, {@code 0} if
+     *         unbounded
+     */
+    public int getMaxEvictableSessionBeans() {
+        return maxEvictableSessionBeans;
+    }
+
+    /**
+     * Sets {@code maxEvictableSessionBeans} property value.
+     *
+     * @param maxEvictableSessionBeans the {@code maxEvictableSessionBeans} property value
+     */
+    public void setMaxEvictableSessionBeans(int maxEvictableSessionBeans) {
+        this.maxEvictableSessionBeans = maxEvictableSessionBeans;
+    }
+
+    /**
+     * Gets the maximum number of translations of the I18N provider bean
+     * cached.
+     *
+     * @return the translation cache size, {@code 0} if disabled
+     */
+    public int getI18nCacheSize() {
+        return i18nCacheSize;
+    }
+
+    /**
+     * Sets {@code i18nCacheSize} property value.
+     *
+     * @param i18nCacheSize the {@code i18nCacheSize} property value
+     */
+    public void setI18nCacheSize(int i18nCacheSize) {
+        this.i18nCacheSize = i18nCacheSize;
+    }
 }
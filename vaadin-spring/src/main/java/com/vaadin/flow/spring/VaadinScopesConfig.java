@@ -19,6 +19,7 @@ import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.vaadin.flow.spring.scopes.VaadinRouteScope;
 import com.vaadin.flow.spring.scopes.VaadinSessionScope;
 import com.vaadin.flow.spring.scopes.VaadinUIScope;
 
@@ -50,4 +51,14 @@ public class VaadinScopesConfig {
     public static BeanFactoryPostProcessor vaadinUIScope() {
         return new VaadinUIScope();
     }
+
+    /**
+     * Creates a Vaadin route scope.
+     *
+     * @return the Vaadin route scope
+     */
+    @Bean
+    public static BeanFactoryPostProcessor vaadinRouteScope() {
+        return new VaadinRouteScope();
+    }
 }
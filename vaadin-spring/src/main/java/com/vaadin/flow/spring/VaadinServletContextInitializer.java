@@ -23,42 +23,50 @@ import javax.servlet.ServletContextListener;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.HandlesTypes;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.googlecode.gentyref.GenericTypeReflector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
-import org.springframework.beans.factory.config.BeanDefinition;
-import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.boot.autoconfigure.AutoConfigurationPackages;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.ApplicationContext;
-import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.core.type.filter.AnnotationTypeFilter;
-import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ResourceUtils;
 
 import com.vaadin.flow.component.Component;
 import com.vaadin.flow.component.WebComponentExporter;
@@ -77,6 +85,7 @@ import com.vaadin.flow.server.RouteRegistry;
 import com.vaadin.flow.server.VaadinConfigurationException;
 import com.vaadin.flow.server.VaadinServletConfig;
 import com.vaadin.flow.server.VaadinServletContext;
+import com.vaadin.flow.server.frontend.FrontendUtils;
 import com.vaadin.flow.server.startup.AbstractRouteRegistryInitializer;
 import com.vaadin.flow.server.startup.AnnotationValidator;
 import com.vaadin.flow.server.startup.ApplicationRouteRegistry;
@@ -99,6 +108,27 @@ import com.vaadin.flow.theme.Theme;
  * annotations in the classpath). This class enables this scanning via Spring so
  * that the functionality which relies on {@link ServletContainerInitializer}
  * works in the same way as in deployable WAR file.
+ * <p>
+ * Each initialization phase is recorded as a {@link StartupStep} named
+ * {@code vaadin.startup.<phase>} of the application context
+ * {@link ApplicationStartup}: {@code lookup}, {@code routes},
+ * {@code error-targets}, {@code annotation-validation}, {@code dev-mode} and
+ * {@code web-components}. Class path scans are recorded as
+ * {@code vaadin.startup.scan} steps, one per package, tagged with the number
+ * of resources read, classes found and annotation or super type matches.
+ * The instantiation of the lookup services is recorded as
+ * {@code vaadin.startup.lookup.services}, tagged with the number of services,
+ * the number of threads used and the summed instantiation time of the
+ * services, which exceeds the step duration by the time saved by
+ * instantiating them concurrently.
+ * With {@code vaadin.lazy-route-registration} enabled, routes are registered
+ * in a background thread recorded as {@code vaadin.startup.routes.deferred}
+ * and the initialization of the Vaadin servlet and the requests to it wait
+ * for the registration to finish.
+ * With {@code vaadin.dev-mode-background-init} enabled, the development mode
+ * is initialized in a background thread, reporting its progress to
+ * {@link DevModeInitializationListener} beans, while the Vaadin servlet
+ * answers page requests with a placeholder page.
  *
  * @see ServletContainerInitializer
  * @see RouteRegistry
@@ -106,8 +136,11 @@ import com.vaadin.flow.theme.Theme;
 public class VaadinServletContextInitializer
         implements ServletContextInitializer {
 
+    static final String STARTUP_STEP_PREFIX = "vaadin.startup.";
+
     private ApplicationContext appContext;
     private ResourceLoader customLoader;
+    private SharedTypeIndex sharedTypeIndex;
 
     /**
      * Packages that should be excluded when scanning all packages.
@@ -145,29 +178,147 @@ public class VaadinServletContextInitializer
     private final List<String> customScanOnly;
 
     /**
-     * Class path scanner that reuses infrastructure from Spring while also
-     * considering abstract types.
+     * Packages marked by the user to be never scanned.
+     */
+    private final List<String> customScanNever;
+
+    /**
+     * Shared class path walk for all the listeners which look up classes in
+     * the default packages using the application context resource loader.
+     * <p>
+     * The classes matching any annotation or super type required by these
+     * listeners are collected into an index when the first listener asks for
+     * them, unless a {@value VaadinTypeIndex#RESOURCE_LOCATION} index generated
+     * at build time covers them already. The index is released once all the
+     * listeners have been run.
      */
-    private static class ClassPathScanner
-            extends ClassPathScanningCandidateComponentProvider {
-        private ClassPathScanner(Environment environment,
-                ResourceLoader resourceLoader,
+    private class SharedTypeIndex implements ServletContextListener {
+
+        private final List<Class<? extends Annotation>> annotations = new ArrayList<>();
+
+        private final List<Class<?>> types = new ArrayList<>();
+
+        private VaadinTypeIndex index;
+
+        private SharedTypeIndex() {
+            collectIndexedTypes(annotations, types);
+        }
+
+        @Override
+        public void contextInitialized(ServletContextEvent event) {
+            index = null;
+        }
+
+        @Override
+        public void contextDestroyed(ServletContextEvent event) {
+            // no need to do anything
+        }
+
+        private Stream<Class<?>> find(Collection<String> packages,
+                Collection<Class<? extends Annotation>> annotations,
+                Collection<Class<?>> types) {
+            return findClassNames(packages, annotations, types)
+                    .map(VaadinServletContextInitializer.this::loadClass);
+        }
+
+        private Stream<String> findClassNames(Collection<String> packages,
                 Collection<Class<? extends Annotation>> annotations,
                 Collection<Class<?>> types) {
-            super(false, environment);
-            setResourceLoader(resourceLoader);
+            if (!this.annotations.containsAll(annotations)
+                    || !this.types.containsAll(types)) {
+                return findClassNamesByAnnotationOrSuperType(packages,
+                        appContext, annotations, types, null);
+            }
+            VaadinTypeIndex typeIndex = getIndex();
+            if (!typeIndex.covers(packages)) {
+                return findClassNamesByAnnotationOrSuperType(packages,
+                        appContext, annotations, types, null);
+            }
+            return typeIndex.find(packages,
+                    VaadinTypeIndex.getKeys(annotations, types));
+        }
+
+        private VaadinTypeIndex getIndex() {
+            if (index == null) {
+                Collection<String> packages = getIndexedPackages();
+                index = loadIndex(packages);
+                if (index == null) {
+                    long start = System.nanoTime();
+                    index = createScanner(appContext).scan(packages,
+                            annotations, types);
+                    getLogger().debug(
+                            "Scanning {} for {} annotations and {} super types took {} ms",
+                            index.getPackages(), annotations.size(),
+                            types.size(), TimeUnit.NANOSECONDS
+                                    .toMillis(System.nanoTime() - start));
+                }
+            }
+            return index;
+        }
+
+        private VaadinTypeIndex loadIndex(Collection<String> packages) {
+            if (appContext.getEnvironment().getProperty(
+                    "vaadin.ignore-type-index", Boolean.class, false)) {
+                return null;
+            }
+            VaadinTypeIndex loaded;
+            try {
+                loaded = VaadinTypeIndex.load(appContext.getClassLoader());
+            } catch (IOException e) {
+                getLogger().warn("Unable to read {}, scanning the class path",
+                        VaadinTypeIndex.RESOURCE_LOCATION, e);
+                return null;
+            }
+            if (loaded == null) {
+                return null;
+            }
+            if (!loaded.covers(packages) || !loaded.hasKeys(
+                    VaadinTypeIndex.getKeys(annotations, types))) {
+                getLogger().info(
+                        "{} does not cover the packages {} or the types looked up on startup, scanning the class path",
+                        VaadinTypeIndex.RESOURCE_LOCATION, packages);
+                return null;
+            }
+            getLogger().debug("Using {} for the packages {}",
+                    VaadinTypeIndex.RESOURCE_LOCATION, loaded.getPackages());
+            return loaded;
+        }
+    }
+
+    /**
+     * Records the initialization of a listener as a {@link StartupStep} of the
+     * application context startup.
+     */
+    private class StartupStepListener implements ServletContextListener {
+
+        private final String name;
+
+        private final ServletContextListener listener;
 
-            annotations.stream().map(AnnotationTypeFilter::new)
-                    .forEach(this::addIncludeFilter);
-            types.stream().map(AssignableTypeFilter::new)
-                    .forEach(this::addIncludeFilter);
+        private StartupStepListener(String name,
+                ServletContextListener listener) {
+            this.name = name;
+            this.listener = listener;
         }
 
         @Override
-        protected boolean isCandidateComponent(
-                AnnotatedBeanDefinition beanDefinition) {
-            return super.isCandidateComponent(beanDefinition)
-                    || beanDefinition.getMetadata().isAbstract();
+        public void contextInitialized(ServletContextEvent event) {
+            StartupStep step = getApplicationStartup()
+                    .start(STARTUP_STEP_PREFIX + name);
+            long start = System.nanoTime();
+            try {
+                listener.contextInitialized(event);
+            } finally {
+                step.end();
+                getLogger().debug("Vaadin startup step {} took {} ms", name,
+                        TimeUnit.NANOSECONDS
+                                .toMillis(System.nanoTime() - start));
+            }
+        }
+
+        @Override
+        public void contextDestroyed(ServletContextEvent event) {
+            listener.contextDestroyed(event);
         }
     }
 
@@ -203,7 +354,7 @@ public class VaadinServletContextInitializer
             }
 
             Set<Class<?>> classes = Stream.concat(
-                    findByAnnotationOrSuperType(getLookupPackages(), appContext,
+                    sharedTypeIndex.find(getLookupPackages(),
                             Collections.emptyList(), getServiceTypes()),
                     // LookupInitializer is necessary here: it allows
                     // identify Spring boot as a regular Web container (and run
@@ -222,15 +373,7 @@ public class VaadinServletContextInitializer
 
         @Override
         protected Collection<Class<?>> getServiceTypes() {
-            // intentionally make annotation unmodifiable empty list because
-            // LookupInitializer doesn't have annotations at the moment
-            List<Class<? extends Annotation>> annotations = Collections
-                    .emptyList();
-            List<Class<?>> types = new LinkedList<>();
-            collectHandleTypes(LookupServletContainerInitializer.class,
-                    annotations, types);
-            types.remove(LookupInitializer.class);
-            return types;
+            return getLookupServiceTypes();
         }
 
     }
@@ -250,31 +393,27 @@ public class VaadinServletContextInitializer
             if (registry.getRegisteredRoutes().isEmpty()) {
                 getLogger().debug("There are no discovered routes yet. "
                         + "Start to collect all routes from the classpath...");
-                try {
-                    List<Class<?>> routeClasses = findByAnnotation(
-                            getRoutePackages(), Route.class, RouteAlias.class)
+                if (appContext.getEnvironment().getProperty(
+                        "vaadin.lazy-route-registration", Boolean.class,
+                        false)) {
+                    List<String> routeClassNames = sharedTypeIndex
+                            .findClassNames(getRoutePackages(),
+                                    Arrays.asList(Route.class,
+                                            RouteAlias.class),
+                                    Collections.emptySet())
                             .collect(Collectors.toList());
-
                     getLogger().debug(
-                            "Found {} route classes. Here is the list: {}",
-                            routeClasses.size(), routeClasses);
-
-                    Set<Class<? extends Component>> navigationTargets = validateRouteClasses(
-                            routeClasses.stream());
-
-                    getLogger().debug(
-                            "There are {} navigation targets after filtering route classes: {}",
-                            navigationTargets.size(), navigationTargets);
-
-                    RouteConfiguration routeConfiguration = RouteConfiguration
-                            .forRegistry(registry);
-                    routeConfiguration
-                            .update(() -> setAnnotatedRoutes(routeConfiguration,
-                                    navigationTargets));
-                    registry.setPwaConfigurationClass(
-                            validatePwaClass(routeClasses.stream()));
-                } catch (InvalidRouteConfigurationException e) {
-                    throw new IllegalStateException(e);
+                            "Found {} route classes, registering them in the background: {}",
+                            routeClassNames.size(), routeClassNames);
+                    new DeferredRouteRegistration(routeClassNames).start(
+                            event.getServletContext(),
+                            () -> registerDeferredRoutes(registry,
+                                    routeClassNames));
+                } else {
+                    registerRoutes(registry,
+                            findByAnnotation(getRoutePackages(), Route.class,
+                                    RouteAlias.class)
+                                    .collect(Collectors.toList()));
                 }
             } else {
                 getLogger().debug(
@@ -289,6 +428,49 @@ public class VaadinServletContextInitializer
             // no need to do anything
         }
 
+        private void registerDeferredRoutes(ApplicationRouteRegistry registry,
+                List<String> routeClassNames) {
+            StartupStep step = getApplicationStartup()
+                    .start(STARTUP_STEP_PREFIX + "routes.deferred");
+            try {
+                registerRoutes(registry,
+                        routeClassNames.stream()
+                                .map(VaadinServletContextInitializer.this::loadClass)
+                                .collect(Collectors.toList()));
+            } catch (RuntimeException e) {
+                getLogger().error("Unable to register the routes", e);
+                throw e;
+            } finally {
+                step.end();
+            }
+        }
+
+        private void registerRoutes(ApplicationRouteRegistry registry,
+                List<Class<?>> routeClasses) {
+            try {
+                getLogger().debug(
+                        "Found {} route classes. Here is the list: {}",
+                        routeClasses.size(), routeClasses);
+
+                Set<Class<? extends Component>> navigationTargets = validateRouteClasses(
+                        routeClasses.stream());
+
+                getLogger().debug(
+                        "There are {} navigation targets after filtering route classes: {}",
+                        navigationTargets.size(), navigationTargets);
+
+                RouteConfiguration routeConfiguration = RouteConfiguration
+                        .forRegistry(registry);
+                routeConfiguration
+                        .update(() -> setAnnotatedRoutes(routeConfiguration,
+                                navigationTargets));
+                registry.setPwaConfigurationClass(
+                        validatePwaClass(routeClasses.stream()));
+            } catch (InvalidRouteConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
         private void setAnnotatedRoutes(RouteConfiguration routeConfiguration,
                 Set<Class<? extends Component>> routes) {
             routeConfiguration.getHandledRegistry().clean();
@@ -413,6 +595,22 @@ public class VaadinServletContextInitializer
                 return;
             }
 
+            DevModeInitialization initialization = new DevModeInitialization(
+                    appContext.getBeansOfType(
+                            DevModeInitializationListener.class).values());
+            if (appContext.getEnvironment().getProperty(
+                    "vaadin.dev-mode-background-init", Boolean.class,
+                    false)) {
+                initialization.start(event.getServletContext(),
+                        () -> initDevMode(event, config, initialization));
+            } else {
+                initDevMode(event, config, initialization);
+            }
+        }
+
+        private void initDevMode(ServletContextEvent event,
+                DeploymentConfiguration config,
+                DevModeInitialization initialization) {
             Set<String> basePackages;
             if (isScanOnlySet()) {
                 basePackages = new HashSet<>(getScanOnlyPackages());
@@ -420,21 +618,17 @@ public class VaadinServletContextInitializer
                 basePackages = Collections.singleton("");
             }
 
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
 
-            List<Class<? extends Annotation>> annotations = new ArrayList<>();
-            List<Class<?>> superTypes = new ArrayList<>();
-            collectHandleTypes(DevModeInitializer.class, annotations,
-                    superTypes);
-
-            Set<Class<?>> classes = findByAnnotationOrSuperType(basePackages,
-                    customLoader, annotations, superTypes)
-                    .collect(Collectors.toSet());
+            Set<Class<?>> classes = initialization.runPhase(
+                    DevModeInitializationListener.SCAN,
+                    () -> scanDevModeClasses(config, basePackages));
 
-            final long classScanning = System.currentTimeMillis();
+            final long classScanning = TimeUnit.NANOSECONDS
+                    .toMillis(System.nanoTime() - start);
             getLogger().info(
-                    "Search for subclasses and classes with annotations took {} seconds",
-                    (classScanning - start) / 1000);
+                    "Search for subclasses and classes with annotations took {} ms",
+                    classScanning);
 
             if (classScanning > 10000 && appContext.getEnvironment()
                     .getProperty("vaadin.allowed-packages") == null
@@ -445,24 +639,78 @@ public class VaadinServletContextInitializer
                                 + "See documentation for details: https://vaadin.com/docs/integrations/spring/configuration");
             }
 
-            try {
-                DevModeInitializer.initDevModeHandler(classes,
-                        event.getServletContext(), config);
-            } catch (ServletException e) {
-                throw new RuntimeException(
-                        "Unable to initialize Vaadin DevModeHandler", e);
-            }
+            initialization.runPhase(
+                    DevModeInitializationListener.DEV_MODE_HANDLER, () -> {
+                        try {
+                            DevModeInitializer.initDevModeHandler(classes,
+                                    event.getServletContext(), config);
+                        } catch (ServletException e) {
+                            throw new RuntimeException(
+                                    "Unable to initialize Vaadin DevModeHandler",
+                                    e);
+                        }
+                        return null;
+                    });
             // to make sure the user knows the application is ready, show
             // notification to the user
             ServletDeployer.logAppStartupToConsole(event.getServletContext(),
                     true);
         }
 
+        private Set<Class<?>> scanDevModeClasses(
+                DeploymentConfiguration config, Set<String> basePackages) {
+            List<Class<? extends Annotation>> annotations = new ArrayList<>();
+            List<Class<?>> superTypes = new ArrayList<>();
+            collectHandleTypes(DevModeInitializer.class, annotations,
+                    superTypes);
+
+            VaadinTypeScanCache scanCache = createScanCache(config,
+                    basePackages, annotations, superTypes);
+            Set<Class<?>> classes = findByAnnotationOrSuperType(basePackages,
+                    customLoader, annotations, superTypes, scanCache)
+                    .collect(Collectors.toSet());
+            if (scanCache != null) {
+                scanCache.store();
+            }
+            return classes;
+        }
+
         @Override
         public void contextDestroyed(ServletContextEvent event) {
             // NO-OP
         }
 
+        private VaadinTypeScanCache createScanCache(
+                DeploymentConfiguration config, Collection<String> packages,
+                List<Class<? extends Annotation>> annotations,
+                List<Class<?>> superTypes) {
+            if (!appContext.getEnvironment().getProperty(
+                    "vaadin.dev-mode-scan-cache", Boolean.class, false)) {
+                return null;
+            }
+            File baseDir = new File(config.getStringProperty(
+                    FrontendUtils.PROJECT_BASEDIR,
+                    System.getProperty("user.dir", ".")));
+            File buildDir = new File(baseDir, "target");
+            if (!buildDir.isDirectory()) {
+                buildDir = new File(baseDir, "build");
+            }
+            if (!buildDir.isDirectory()) {
+                getLogger().debug(
+                        "No target or build directory in {}, class scanning results are not cached",
+                        baseDir);
+                return null;
+            }
+            String signature = String.join(",",
+                    VaadinTypeIndex.getKeys(annotations, superTypes)) + "|"
+                    + String.join(",", new TreeSet<>(packages)) + "|"
+                    + String.join(",", customScanNever);
+            VaadinTypeScanCache scanCache = new VaadinTypeScanCache(
+                    new File(buildDir, "vaadin-dev-scan.cache"), signature);
+            scanCache.load();
+            return scanCache;
+        }
+
         private Collection<String> getScanOnlyPackages() {
             HashSet<String> npmPackages = new HashSet<>(getDefaultPackages());
             npmPackages.addAll(DEFAULT_SCAN_ONLY);
@@ -542,6 +790,7 @@ public class VaadinServletContextInitializer
             neverScan = Arrays.stream(neverScanProperty.split(","))
                     .map(String::trim).collect(Collectors.toList());
         }
+        customScanNever = neverScan;
 
         String onlyScanProperty = appContext.getEnvironment()
                 .getProperty("vaadin.allowed-packages");
@@ -581,7 +830,10 @@ public class VaadinServletContextInitializer
             VaadinServletContext context) throws ServletException {
         CompositeServletContextListener compositeListener = new CompositeServletContextListener();
 
-        compositeListener.addListener(new LookupInitializerListener());
+        sharedTypeIndex = new SharedTypeIndex();
+
+        compositeListener.addListener(
+                withStartupStep("lookup", new LookupInitializerListener()));
 
         // Verify servlet version also for SpringBoot.
         ServletVerifier.verifyServletVersion();
@@ -601,73 +853,115 @@ public class VaadinServletContextInitializer
              * because an RouteRegistryInitializer has not been executed (end
              * never will).
              */
-            compositeListener.addListener(new RouteServletContextListener());
+            compositeListener.addListener(withStartupStep("routes",
+                    new RouteServletContextListener()));
         }
 
-        compositeListener
-                .addListener(new ErrorParameterServletContextListener());
+        compositeListener.addListener(withStartupStep("error-targets",
+                new ErrorParameterServletContextListener()));
 
-        compositeListener
-                .addListener(new AnnotationValidatorServletContextListener());
+        compositeListener.addListener(withStartupStep("annotation-validation",
+                new AnnotationValidatorServletContextListener()));
 
-        compositeListener.addListener(new DevModeServletContextListener());
+        compositeListener.addListener(withStartupStep("dev-mode",
+                new DevModeServletContextListener()));
 
         // Skip custom web component builders search if registry already
         // initialized
         if (!WebComponentConfigurationRegistry.getInstance(context)
                 .hasConfigurations()) {
-            compositeListener
-                    .addListener(new WebComponentServletContextListener());
+            compositeListener.addListener(withStartupStep("web-components",
+                    new WebComponentServletContextListener()));
         }
+
+        // Releases the classes found by the listeners above
+        compositeListener.addListener(sharedTypeIndex);
         return compositeListener;
     }
 
     private Stream<Class<?>> findByAnnotation(Collection<String> packages,
             Class<? extends Annotation>... annotations) {
-        return findByAnnotation(packages, appContext, annotations);
-    }
-
-    private Stream<Class<?>> findByAnnotation(Collection<String> packages,
-            ResourceLoader loader, Class<? extends Annotation>... annotations) {
-        return findByAnnotationOrSuperType(packages, loader,
-                Arrays.asList(annotations), Collections.emptySet());
+        return sharedTypeIndex.find(packages, Arrays.asList(annotations),
+                Collections.emptySet());
     }
 
     private Stream<Class<?>> findBySuperType(Collection<String> packages,
             Class<?> type) {
-        return findBySuperType(packages, appContext, type);
+        return sharedTypeIndex.find(packages, Collections.emptySet(),
+                Collections.singleton(type));
     }
 
-    private Stream<Class<?>> findBySuperType(Collection<String> packages,
-            ResourceLoader loader, Class<?> type) {
-        return findByAnnotationOrSuperType(packages, loader,
-                Collections.emptySet(), Collections.singleton(type));
+    private Stream<Class<?>> findByAnnotationOrSuperType(
+            Collection<String> packages, ResourceLoader loader,
+            Collection<Class<? extends Annotation>> annotations,
+            Collection<Class<?>> types) {
+        return findByAnnotationOrSuperType(packages, loader, annotations,
+                types, null);
     }
 
     private Stream<Class<?>> findByAnnotationOrSuperType(
             Collection<String> packages, ResourceLoader loader,
             Collection<Class<? extends Annotation>> annotations,
-            Collection<Class<?>> types) {
-        ClassPathScanner scanner = new ClassPathScanner(
-                appContext.getEnvironment(), loader, annotations, types);
-        return packages.stream().map(scanner::findCandidateComponents)
-                .flatMap(Collection::stream).map(this::getBeanClass);
+            Collection<Class<?>> types, VaadinTypeScanCache scanCache) {
+        return findClassNamesByAnnotationOrSuperType(packages, loader,
+                annotations, types, scanCache).map(this::loadClass);
     }
 
-    private Class<?> getBeanClass(BeanDefinition beanDefinition) {
-        AbstractBeanDefinition definition = (AbstractBeanDefinition) beanDefinition;
-        Class<?> beanClass;
-        if (definition.hasBeanClass()) {
-            beanClass = definition.getBeanClass();
-        } else {
-            try {
-                beanClass = definition
-                        .resolveBeanClass(appContext.getClassLoader());
-            } catch (ClassNotFoundException e) {
-                throw new IllegalStateException(e);
+    private Stream<String> findClassNamesByAnnotationOrSuperType(
+            Collection<String> packages, ResourceLoader loader,
+            Collection<Class<? extends Annotation>> annotations,
+            Collection<Class<?>> types, VaadinTypeScanCache scanCache) {
+        VaadinTypeIndex index = createScanner(loader, scanCache).scan(packages,
+                annotations, types);
+        return index.find(packages,
+                VaadinTypeIndex.getKeys(annotations, types));
+    }
+
+    private VaadinTypeScanner createScanner(ResourceLoader loader) {
+        return createScanner(loader, null);
+    }
+
+    private ServletContextListener withStartupStep(String name,
+            ServletContextListener listener) {
+        return new StartupStepListener(name, listener);
+    }
+
+    private ApplicationStartup getApplicationStartup() {
+        if (appContext instanceof ConfigurableApplicationContext) {
+            return ((ConfigurableApplicationContext) appContext)
+                    .getApplicationStartup();
+        }
+        return ApplicationStartup.DEFAULT;
+    }
+
+    private VaadinTypeScanner createScanner(ResourceLoader loader,
+            VaadinTypeScanCache scanCache) {
+        Environment environment = appContext.getEnvironment();
+        int parallelism = 1;
+        if (environment.getProperty("vaadin.parallel-scan", Boolean.class,
+                false)) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        VaadinTypeScanner scanner = new VaadinTypeScanner(environment, loader,
+                parallelism, scanCache);
+        scanner.setApplicationStartup(getApplicationStartup());
+        if (environment.getProperty("vaadin.mapped-class-scan", Boolean.class,
+                false)) {
+            scanner.setMappedClassScan(true);
+            if (loader instanceof CustomResourceLoader) {
+                scanner.setPathFilter(
+                        ((CustomResourceLoader) loader)::shouldPathBeScanned);
             }
         }
-        return beanClass;
+        return scanner;
+    }
+
+    private Class<?> loadClass(String className) {
+        try {
+            return ClassUtils.forName(className, appContext.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private Collection<String> getRoutePackages() {
@@ -694,6 +988,16 @@ public class VaadinServletContextInitializer
         return getDefaultPackages();
     }
 
+    private Collection<String> getIndexedPackages() {
+        Set<String> packages = new HashSet<>();
+        packages.addAll(getRoutePackages());
+        packages.addAll(getVerifiableAnnotationPackages());
+        packages.addAll(getWebComponentPackages());
+        packages.addAll(getErrorParameterPackages());
+        packages.addAll(getLookupPackages());
+        return packages;
+    }
+
     private List<String> getDefaultPackages() {
         List<String> packagesList = Collections.emptyList();
         if (appContext
@@ -713,6 +1017,46 @@ public class VaadinServletContextInitializer
         return packagesList;
     }
 
+    /**
+     * Collects the annotations and super types which are looked up in the
+     * default packages by the listeners sharing the same class path walk.
+     *
+     * @param annotations
+     *            the list to add annotations to
+     * @param types
+     *            the list to add super types to
+     */
+    @SuppressWarnings("unchecked")
+    static void collectIndexedTypes(
+            List<Class<? extends Annotation>> annotations,
+            List<Class<?>> types) {
+        annotations.add(Route.class);
+        annotations.add(RouteAlias.class);
+        Stream.concat(new AnnotationValidator().getAnnotations().stream(),
+                new WebComponentExporterAwareValidator().getAnnotations()
+                        .stream())
+                .map(annotation -> (Class<? extends Annotation>) annotation)
+                .filter(annotation -> !annotations.contains(annotation))
+                .forEach(annotations::add);
+
+        types.add(HasErrorParameter.class);
+        types.add(WebComponentExporter.class);
+        getLookupServiceTypes().stream()
+                .filter(type -> !types.contains(type)).forEach(types::add);
+    }
+
+    private static List<Class<?>> getLookupServiceTypes() {
+        // intentionally make annotation unmodifiable empty list because
+        // LookupInitializer doesn't have annotations at the moment
+        List<Class<? extends Annotation>> annotations = Collections
+                .emptyList();
+        List<Class<?>> types = new LinkedList<>();
+        collectHandleTypes(LookupServletContainerInitializer.class,
+                annotations, types);
+        types.remove(LookupInitializer.class);
+        return types;
+    }
+
     private static void collectHandleTypes(Class<?> clazz,
             List<Class<? extends Annotation>> annotations,
             List<Class<?>> superTypes) {
@@ -734,11 +1078,16 @@ public class VaadinServletContextInitializer
     private static class CustomResourceLoader
             extends PathMatchingResourcePatternResolver {
 
-        private final PrefixTree scanNever = new PrefixTree(DEFAULT_SCAN_NEVER);
+        private static final int SCAN_NEVER = 1;
 
-        private final PrefixTree scanAlways = new PrefixTree(DEFAULT_SCAN_ONLY
-                .stream().map(packageName -> packageName.replace('.', '/'))
-                .collect(Collectors.toList()));
+        private static final int SCAN_ALWAYS = 2;
+
+        /**
+         * Both the never and always scanned prefixes, told apart by their
+         * markers, so that a path is checked with a single walk.
+         */
+        private final PrefixTree scanFilter = new PrefixTree(
+                Collections.emptyList());
 
         public CustomResourceLoader(ResourceLoader resourceLoader,
                 List<String> addedScanNever) {
@@ -747,33 +1096,36 @@ public class VaadinServletContextInitializer
             Objects.requireNonNull(addedScanNever,
                     "addedScanNever shouldn't be null!");
 
-            addedScanNever.forEach(scanNever::addPrefix);
+            DEFAULT_SCAN_NEVER.forEach(
+                    prefix -> scanFilter.addPrefix(prefix, SCAN_NEVER));
+            DEFAULT_SCAN_ONLY.forEach(packageName -> scanFilter
+                    .addPrefix(packageName.replace('.', '/'), SCAN_ALWAYS));
+            addedScanNever.forEach(
+                    prefix -> scanFilter.addPrefix(prefix, SCAN_NEVER));
         }
 
         /**
-         * Lock used to ensure there's only one update going on at once.
-         * <p>
-         * The lock is configured to always guarantee a fair ordering.
+         * Resources by location pattern. Resolving a pattern resolves its root
+         * directories through this same method, so the cache is filled with
+         * {@code putIfAbsent} rather than {@code computeIfAbsent} which does
+         * not allow recursive updates.
          */
-        private final ReentrantLock lock = new ReentrantLock(true);
-
-        private Map<String, Resource[]> cache = new HashMap<>();
-        private Set<String> rootPaths = new HashSet<>();
+        private final Map<String, Resource[]> cache = new ConcurrentHashMap<>();
+        private final Set<String> rootPaths = ConcurrentHashMap.newKeySet();
 
         @Override
         public Resource[] getResources(String locationPattern)
                 throws IOException {
-            lock.lock();
-            try {
-                if (cache.containsKey(locationPattern)) {
-                    return cache.get(locationPattern);
+            Resource[] resources = cache.get(locationPattern);
+            if (resources == null) {
+                resources = collectResources(locationPattern);
+                Resource[] previous = cache.putIfAbsent(locationPattern,
+                        resources);
+                if (previous != null) {
+                    resources = previous;
                 }
-                Resource[] resources = collectResources(locationPattern);
-                cache.put(locationPattern, resources);
-                return resources;
-            } finally {
-                lock.unlock();
             }
+            return resources;
         }
 
         private Resource[] collectResources(String locationPattern)
@@ -794,18 +1146,14 @@ public class VaadinServletContextInitializer
                             resourcesList.add(resource);
                         }
                     } else {
-                        List<String> parents = rootPaths.stream()
-                                .filter(path::startsWith)
-                                .collect(Collectors.toList());
-                        if (parents.isEmpty()) {
+                        Boolean scanned = isScannedBelowRoot(path,
+                                this::shouldPathBeScanned);
+                        if (scanned == null) {
                             throw new IllegalStateException(String.format(
                                     "Parent resource of [%s] not found in the resources!",
                                     path));
                         }
-
-                        if (parents.stream()
-                                .anyMatch(parent -> shouldPathBeScanned(
-                                        path.substring(parent.length())))) {
+                        if (scanned) {
                             resourcesList.add(resource);
                         }
                     }
@@ -814,8 +1162,114 @@ public class VaadinServletContextInitializer
             return resourcesList.toArray(new Resource[0]);
         }
 
+        /**
+         * Checks the path relative to each root directory containing it,
+         * looking the parent directories of the path up in the known roots.
+         *
+         * @return whether the path is scanned for any of its roots or
+         *         {@code null} if no root contains the path
+         */
+        private Boolean isScannedBelowRoot(String path,
+                Predicate<String> shouldBeScanned) {
+            Boolean scanned = null;
+            int index = path.endsWith("/") ? path.length() - 1
+                    : path.lastIndexOf('/');
+            while (index >= 0) {
+                String parent = path.substring(0, index + 1);
+                if (rootPaths.contains(parent)) {
+                    if (shouldBeScanned
+                            .test(path.substring(parent.length()))) {
+                        return true;
+                    }
+                    scanned = false;
+                }
+                index = index == 0 ? -1 : path.lastIndexOf('/', index - 1);
+            }
+            return scanned;
+        }
+
+        @Override
+        protected Set<Resource> doFindPathMatchingJarResources(
+                Resource rootDirResource, URL rootDirURL, String subPattern)
+                throws IOException {
+            String url = rootDirURL.toExternalForm();
+            int separator = url.lastIndexOf(ResourceUtils.JAR_URL_SEPARATOR);
+            if (separator < 0) {
+                return super.doFindPathMatchingJarResources(rootDirResource,
+                        rootDirURL, subPattern);
+            }
+            String rootEntryPath = url.substring(separator + 2);
+            if (!rootEntryPath.isEmpty()
+                    && !shouldDirectoryBeScanned(rootEntryPath)) {
+                // The jar is not opened at all
+                return Collections.emptySet();
+            }
+
+            URLConnection connection = rootDirURL.openConnection();
+            if (!(connection instanceof JarURLConnection)) {
+                return super.doFindPathMatchingJarResources(rootDirResource,
+                        rootDirURL, subPattern);
+            }
+            JarURLConnection jarConnection = (JarURLConnection) connection;
+            ResourceUtils.useCachesIfNecessary(jarConnection);
+            JarFile jarFile = jarConnection.getJarFile();
+            JarEntry rootEntry = jarConnection.getJarEntry();
+            rootEntryPath = rootEntry != null ? rootEntry.getName() : "";
+            if (!rootEntryPath.isEmpty() && !rootEntryPath.endsWith("/")) {
+                rootEntryPath += "/";
+            }
+            try {
+                Set<Resource> result = new LinkedHashSet<>();
+                for (Enumeration<JarEntry> entries = jarFile
+                        .entries(); entries.hasMoreElements();) {
+                    String entryPath = entries.nextElement().getName();
+                    // Skip blocked entries before matching the pattern and
+                    // creating resources for them
+                    if (!entryPath.startsWith(rootEntryPath)
+                            || !shouldPathBeScanned(entryPath)) {
+                        continue;
+                    }
+                    String relativePath = entryPath
+                            .substring(rootEntryPath.length());
+                    if (getPathMatcher().match(subPattern, relativePath)) {
+                        result.add(
+                                rootDirResource.createRelative(relativePath));
+                    }
+                }
+                return result;
+            } finally {
+                if (!jarConnection.getUseCaches()) {
+                    jarFile.close();
+                }
+            }
+        }
+
+        @Override
+        protected void doRetrieveMatchingFiles(String fullPattern, File dir,
+                Set<File> result) throws IOException {
+            String path = dir.toURI().getRawPath();
+            if (!path.endsWith("/")) {
+                path += "/";
+            }
+            if (!Boolean.FALSE.equals(isScannedBelowRoot(path,
+                    this::shouldDirectoryBeScanned))) {
+                super.doRetrieveMatchingFiles(fullPattern, dir, result);
+            }
+        }
+
         private boolean shouldPathBeScanned(String path) {
-            return scanAlways.hasPrefix(path) || !scanNever.hasPrefix(path);
+            int match = scanFilter.match(path);
+            return (match & SCAN_ALWAYS) != 0 || (match & SCAN_NEVER) == 0;
+        }
+
+        /**
+         * Checks whether anything inside the given directory path may be
+         * scanned: either the directory itself is not blocked or some always
+         * scanned package is located inside it.
+         */
+        private boolean shouldDirectoryBeScanned(String path) {
+            return shouldPathBeScanned(path)
+                    || (scanFilter.matchExtensions(path) & SCAN_ALWAYS) != 0;
         }
     }
 
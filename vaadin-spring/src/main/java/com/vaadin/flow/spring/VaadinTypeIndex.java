@@ -0,0 +1,296 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the classes found by a class path scan.
+ * <p>
+ * The index maps the name of every annotation and super type the scan was
+ * looking for to the names of the classes matching it, so that several
+ * consumers may query the result of a single class path walk.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class VaadinTypeIndex implements Serializable {
+
+    /**
+     * Location of the index resources written at build time.
+     */
+    static final String RESOURCE_LOCATION = "META-INF/vaadin-spring.idx";
+
+    private static final String PACKAGES_ENTRY = "@packages";
+
+    private static final String KEYS_ENTRY = "@types";
+
+    /**
+     * Written instead of the empty package, which contains every class, so
+     * that a missing or empty packages entry does not cover everything.
+     */
+    private static final String ALL_PACKAGES = "*";
+
+    private final Set<String> packages;
+
+    private final Set<String> keys;
+
+    private final Map<String, Set<String>> classNames;
+
+    /**
+     * Creates a new index for the scanned {@code packages}.
+     *
+     * @param packages
+     *            the root packages which have been scanned
+     * @param keys
+     *            the names of all the annotations and super types which have
+     *            been looked for
+     * @param classNames
+     *            the names of the matching classes by the annotation or super
+     *            type name they have been found for
+     */
+    VaadinTypeIndex(Collection<String> packages, Collection<String> keys,
+            Map<String, Set<String>> classNames) {
+        this.packages = Collections
+                .unmodifiableSet(new TreeSet<>(getRootPackages(packages)));
+        this.keys = Collections.unmodifiableSet(new TreeSet<>(keys));
+        Map<String, Set<String>> copy = new HashMap<>();
+        classNames.forEach((key, names) -> copy.put(key,
+                Collections.unmodifiableSet(new LinkedHashSet<>(names))));
+        this.classNames = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Gets the root packages covered by this index.
+     *
+     * @return the indexed packages
+     */
+    Set<String> getPackages() {
+        return packages;
+    }
+
+    /**
+     * Checks whether all classes of the given {@code packages} have been
+     * indexed.
+     *
+     * @param packages
+     *            the packages to check
+     * @return {@code true} if every package is inside an indexed package
+     */
+    boolean covers(Collection<String> packages) {
+        return packages.stream()
+                .allMatch(pkg -> this.packages.stream().anyMatch(
+                        indexed -> isInPackage(pkg, indexed)));
+    }
+
+    /**
+     * Checks whether the given annotation or super type names have been looked
+     * for when the index was built.
+     *
+     * @param keys
+     *            the annotation and super type names to check
+     * @return {@code true} if all the {@code keys} are indexed
+     */
+    boolean hasKeys(Collection<String> keys) {
+        return this.keys.containsAll(keys);
+    }
+
+    /**
+     * Gets the names of the classes inside any of the given {@code packages}
+     * which match at least one of the given annotation or super type
+     * {@code keys}.
+     *
+     * @param packages
+     *            the packages to look classes in
+     * @param keys
+     *            the names of annotations and super types to look for
+     * @return the distinct names of matching classes
+     */
+    Stream<String> find(Collection<String> packages,
+            Collection<String> keys) {
+        return keys.stream()
+                .flatMap(key -> classNames
+                        .getOrDefault(key, Collections.emptySet()).stream())
+                .distinct()
+                .filter(className -> packages.stream().anyMatch(
+                        pkg -> isInPackage(className, pkg)));
+    }
+
+    /**
+     * Gets all the class names of the index by the annotation or super type
+     * name they have been found for.
+     *
+     * @return the indexed class names
+     */
+    Map<String, Set<String>> getClassNames() {
+        return classNames;
+    }
+
+    /**
+     * Writes the index in the format of {@value #RESOURCE_LOCATION} resources.
+     * <p>
+     * Entries are sorted so that the same class path always produces the same
+     * output.
+     *
+     * @param writer
+     *            the writer to write the index to
+     * @throws IOException
+     *             if writing fails
+     */
+    void write(Writer writer) throws IOException {
+        writer.write("# Vaadin type index, generated by "
+                + VaadinTypeIndexGenerator.class.getName() + "\n");
+        writeEntry(writer, PACKAGES_ENTRY,
+                packages.stream()
+                        .map(pkg -> pkg.isEmpty() ? ALL_PACKAGES : pkg)
+                        .collect(Collectors.toList()));
+        writeEntry(writer, KEYS_ENTRY, keys);
+        for (Map.Entry<String, Set<String>> entry : new TreeMap<>(classNames)
+                .entrySet()) {
+            writeEntry(writer, entry.getKey(), new TreeSet<>(entry.getValue()));
+        }
+    }
+
+    /**
+     * Loads and merges all the {@value #RESOURCE_LOCATION} resources
+     * available through the given {@code classLoader}.
+     * <p>
+     * A merged index covers all the packages of every resource but only the
+     * annotations and super types which have been looked for in all of them.
+     *
+     * @param classLoader
+     *            the class loader to get the resources from
+     * @return the merged index or {@code null} if there are no index
+     *         resources
+     * @throws IOException
+     *             if reading a resource fails
+     */
+    static VaadinTypeIndex load(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> resources = classLoader
+                .getResources(RESOURCE_LOCATION);
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+        Set<String> packages = new LinkedHashSet<>();
+        Set<String> keys = null;
+        Map<String, Set<String>> classNames = new HashMap<>();
+        while (resources.hasMoreElements()) {
+            Properties properties = new Properties();
+            try (InputStream stream = resources.nextElement().openStream()) {
+                properties.load(stream);
+            }
+            split(properties.getProperty(PACKAGES_ENTRY, ""))
+                    .forEach(pkg -> packages
+                            .add(ALL_PACKAGES.equals(pkg) ? "" : pkg));
+            Set<String> indexedKeys = split(
+                    properties.getProperty(KEYS_ENTRY, ""));
+            if (keys == null) {
+                keys = indexedKeys;
+            } else {
+                keys.retainAll(indexedKeys);
+            }
+            for (String key : properties.stringPropertyNames()) {
+                if (!PACKAGES_ENTRY.equals(key) && !KEYS_ENTRY.equals(key)) {
+                    classNames
+                            .computeIfAbsent(key,
+                                    name -> new LinkedHashSet<>())
+                            .addAll(split(properties.getProperty(key)));
+                }
+            }
+        }
+        return new VaadinTypeIndex(packages, keys, classNames);
+    }
+
+    /**
+     * Gets the names which are used as index keys for the given annotations
+     * and super types.
+     *
+     * @param annotations
+     *            annotations to get keys for
+     * @param types
+     *            super types to get keys for
+     * @return the index keys
+     */
+    static Set<String> getKeys(Collection<? extends Class<?>> annotations,
+            Collection<? extends Class<?>> types) {
+        return Stream.concat(annotations.stream(), types.stream())
+                .map(Class::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Removes the packages which are already contained in another package of
+     * the collection.
+     *
+     * @param packages
+     *            the packages to reduce
+     * @return the packages which are not sub packages of others
+     */
+    static Set<String> getRootPackages(Collection<String> packages) {
+        return packages.stream()
+                .filter(pkg -> packages.stream()
+                        .noneMatch(other -> !other.equals(pkg)
+                                && isInPackage(pkg, other)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Checks whether the given class or package {@code name} is located inside
+     * the {@code pkg} package. The empty package contains everything.
+     *
+     * @param name
+     *            a class or package name
+     * @param pkg
+     *            the package name
+     * @return {@code true} if {@code name} is inside the package
+     */
+    static boolean isInPackage(String name, String pkg) {
+        return pkg.isEmpty() || name.equals(pkg)
+                || (name.startsWith(pkg) && name.length() > pkg.length()
+                        && name.charAt(pkg.length()) == '.');
+    }
+
+    private static void writeEntry(Writer writer, String key,
+            Collection<String> values) throws IOException {
+        writer.write(key);
+        writer.write('=');
+        writer.write(String.join(",", values));
+        writer.write('\n');
+    }
+
+    private static Set<String> split(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
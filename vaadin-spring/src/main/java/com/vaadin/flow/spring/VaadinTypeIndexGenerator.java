@@ -0,0 +1,147 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import com.vaadin.flow.router.HasErrorParameter;
+
+/**
+ * Build step which writes the classes the Vaadin servlet context initializer
+ * looks up on startup into a {@value VaadinTypeIndex#RESOURCE_LOCATION}
+ * resource.
+ * <p>
+ * When the resource is available at runtime and covers all the packages the
+ * initializer would scan, the class path is not scanned for routes, error
+ * views, web component exporters, annotations to validate and lookup services.
+ * The index is only used outside of the development mode class scanning, which
+ * always walks the class path.
+ * <p>
+ * Run the generator after compiling the application classes, with the
+ * application class path, e.g. in the production profile:
+ *
+ * <pre>
+ * &lt;plugin&gt;
+ *     &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *     &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *     &lt;executions&gt;
+ *         &lt;execution&gt;
+ *             &lt;phase&gt;process-classes&lt;/phase&gt;
+ *             &lt;goals&gt;
+ *                 &lt;goal&gt;java&lt;/goal&gt;
+ *             &lt;/goals&gt;
+ *             &lt;configuration&gt;
+ *                 &lt;mainClass&gt;com.vaadin.flow.spring.VaadinTypeIndexGenerator&lt;/mainClass&gt;
+ *                 &lt;arguments&gt;
+ *                     &lt;argument&gt;${project.build.outputDirectory}&lt;/argument&gt;
+ *                     &lt;argument&gt;com.example.app&lt;/argument&gt;
+ *                 &lt;/arguments&gt;
+ *             &lt;/configuration&gt;
+ *         &lt;/execution&gt;
+ *     &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * The packages should be the ones of the Spring Boot application class and of
+ * any {@link com.vaadin.flow.spring.annotation.EnableVaadin} annotation. An
+ * index which does not cover the packages scanned at runtime is ignored. The
+ * index describes the class path at build time, so it must be regenerated on
+ * every build. It can be disabled with the
+ * {@code vaadin.ignore-type-index} property.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public final class VaadinTypeIndexGenerator {
+
+    private VaadinTypeIndexGenerator() {
+    }
+
+    /**
+     * Scans the class path of the current thread context class loader and
+     * writes the index into the output directory.
+     *
+     * @param args
+     *            the output directory followed by the packages to index
+     * @throws IOException
+     *             if the index cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: "
+                    + VaadinTypeIndexGenerator.class.getName()
+                    + " <output directory> <package> [<package>...]");
+        }
+        generate(new File(args[0]),
+                Arrays.asList(args).subList(1, args.length),
+                Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Scans the given {@code packages} and writes the index into the
+     * {@code outputDirectory}.
+     *
+     * @param outputDirectory
+     *            the class output directory of the application
+     * @param packages
+     *            the application packages to index
+     * @param classLoader
+     *            the class loader of the application class path
+     * @return the written index file
+     * @throws IOException
+     *             if the index cannot be written
+     */
+    static File generate(File outputDirectory, Collection<String> packages,
+            ClassLoader classLoader) throws IOException {
+        Set<String> indexedPackages = new LinkedHashSet<>(packages);
+        indexedPackages.add(HasErrorParameter.class.getPackage().getName());
+
+        List<Class<? extends Annotation>> annotations = new ArrayList<>();
+        List<Class<?>> types = new ArrayList<>();
+        VaadinServletContextInitializer.collectIndexedTypes(annotations,
+                types);
+
+        VaadinTypeIndex index = new VaadinTypeScanner(
+                new StandardEnvironment(),
+                new PathMatchingResourcePatternResolver(classLoader))
+                        .scan(indexedPackages, annotations, types);
+
+        File file = new File(outputDirectory,
+                VaadinTypeIndex.RESOURCE_LOCATION);
+        Files.createDirectories(file.getParentFile().toPath());
+        try (Writer writer = new OutputStreamWriter(
+                Files.newOutputStream(file.toPath()),
+                StandardCharsets.UTF_8)) {
+            index.write(writer);
+        }
+        return file;
+    }
+}
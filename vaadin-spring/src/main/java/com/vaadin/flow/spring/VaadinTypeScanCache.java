@@ -0,0 +1,287 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Persistent cache of the classes found in each class path root by a
+ * {@link VaadinTypeScanner}.
+ * <p>
+ * Every root (a directory or a jar) is stored with a fingerprint: the size and
+ * modification time for jars, the number of files, total size and latest
+ * modification time for directories. Roots with an unchanged fingerprint reuse
+ * their cached classes instead of being scanned again. Classes in a directory
+ * may extend classes of a jar, so all the cached entries are dropped as soon
+ * as any jar is added, removed or changed. Classes in a directory may also
+ * extend classes of another directory, e.g. in a multi-module build, so the
+ * entries of all the directories are dropped as soon as any directory is
+ * added, removed or changed.
+ * <p>
+ * The cache is meant for development mode restarts, where the jars of the
+ * dependencies usually do not change.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class VaadinTypeScanCache {
+
+    private static final String SIGNATURE_ENTRY = "@signature";
+
+    private final File file;
+
+    private final String signature;
+
+    private final Map<String, Entry> cached = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> used = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private final String fingerprint;
+        private final Map<String, Set<String>> matches;
+
+        private Entry(String fingerprint, Map<String, Set<String>> matches) {
+            this.fingerprint = fingerprint;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * Creates a new cache stored in the given {@code file}.
+     *
+     * @param file
+     *            the file to load the cache from and store it to
+     * @param signature
+     *            description of everything besides the class path affecting
+     *            the scan result, such as the types looked for and the scanned
+     *            packages, a cache stored with another signature is ignored
+     */
+    VaadinTypeScanCache(File file, String signature) {
+        this.file = file;
+        this.signature = signature;
+    }
+
+    /**
+     * Loads the cache file if it exists and has been stored with the same
+     * signature.
+     */
+    void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            properties.load(stream);
+        } catch (IOException e) {
+            getLogger().debug("Unable to read the scan cache {}", file, e);
+            return;
+        }
+        if (!signature.equals(properties.getProperty(SIGNATURE_ENTRY))) {
+            return;
+        }
+        for (String root : properties.stringPropertyNames()) {
+            if (!SIGNATURE_ENTRY.equals(root)) {
+                cached.put(root, parse(properties.getProperty(root)));
+            }
+        }
+    }
+
+    /**
+     * Stores the entries which have been looked up or added since the cache
+     * has been loaded.
+     */
+    void store() {
+        Properties properties = new Properties();
+        properties.setProperty(SIGNATURE_ENTRY, signature);
+        used.forEach((root, entry) -> properties.setProperty(root,
+                format(entry)));
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            try (OutputStream stream = Files.newOutputStream(file.toPath())) {
+                properties.store(stream, "Vaadin class path scan cache");
+            }
+        } catch (IOException e) {
+            getLogger().warn("Unable to write the scan cache {}", file, e);
+        }
+    }
+
+    /**
+     * Drops all the cached entries if any archive root is not cached with the
+     * same fingerprint, or the entries of all the directory roots if any
+     * directory root is not cached with the same fingerprint.
+     *
+     * @param fingerprints
+     *            the current fingerprints by root URL, {@code null} for the
+     *            roots which are not cached
+     */
+    void validate(Map<String, String> fingerprints) {
+        if (hasChanged(fingerprints, true)) {
+            cached.clear();
+        } else if (hasChanged(fingerprints, false)) {
+            cached.keySet().removeIf(root -> !isArchive(root));
+        }
+    }
+
+    private boolean hasChanged(Map<String, String> fingerprints,
+            boolean archives) {
+        boolean changed = fingerprints.entrySet().stream()
+                .filter(root -> root.getValue() != null
+                        && isArchive(root.getKey()) == archives)
+                .anyMatch(root -> !cached.containsKey(root.getKey())
+                        || !Objects.equals(root.getValue(),
+                                cached.get(root.getKey()).fingerprint));
+        boolean removed = cached.keySet().stream()
+                .filter(root -> isArchive(root) == archives)
+                .anyMatch(root -> fingerprints.get(root) == null);
+        return changed || removed;
+    }
+
+    private static boolean isArchive(String root) {
+        return root.startsWith(ResourceUtils.URL_PROTOCOL_JAR + ":");
+    }
+
+    /**
+     * Gets the cached classes of a root.
+     *
+     * @param root
+     *            the root URL
+     * @param fingerprint
+     *            the current fingerprint of the root
+     * @return the annotation and super type names by class name or
+     *         {@code null} if the root is not cached with the same fingerprint
+     */
+    Map<String, Set<String>> get(String root, String fingerprint) {
+        Entry entry = cached.get(root);
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            return null;
+        }
+        used.put(root, entry);
+        return entry.matches;
+    }
+
+    /**
+     * Caches the classes found in a root.
+     *
+     * @param root
+     *            the root URL
+     * @param fingerprint
+     *            the current fingerprint of the root
+     * @param matches
+     *            the annotation and super type names by class name
+     */
+    void put(String root, String fingerprint,
+            Map<String, Set<String>> matches) {
+        Entry entry = new Entry(fingerprint, matches);
+        cached.put(root, entry);
+        used.put(root, entry);
+    }
+
+    /**
+     * Computes the fingerprint of a class path root.
+     *
+     * @param root
+     *            a directory or jar root
+     * @return the fingerprint or {@code null} if the root is neither a local
+     *         directory nor inside a local jar file
+     * @throws IOException
+     *             if the root cannot be read
+     */
+    static String fingerprint(Resource root) throws IOException {
+        URL url = root.getURL();
+        if (ResourceUtils.isJarURL(url)) {
+            URL archive = ResourceUtils.extractArchiveURL(url);
+            if (!ResourceUtils.isFileURL(archive)) {
+                return null;
+            }
+            File jar = ResourceUtils.getFile(archive);
+            return jar.length() + "-" + jar.lastModified();
+        }
+        if (!ResourceUtils.isFileURL(url)) {
+            return null;
+        }
+        AtomicLong count = new AtomicLong();
+        AtomicLong size = new AtomicLong();
+        AtomicLong lastModified = new AtomicLong();
+        try (Stream<Path> paths = Files.walk(root.getFile().toPath())) {
+            paths.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(
+                            path, BasicFileAttributes.class);
+                    count.incrementAndGet();
+                    size.addAndGet(attributes.size());
+                    lastModified.accumulateAndGet(
+                            attributes.lastModifiedTime().toMillis(),
+                            Math::max);
+                } catch (IOException e) {
+                    // Removed while walking, the count tells the difference
+                }
+            });
+        }
+        return count + "-" + size + "-" + lastModified;
+    }
+
+    private static String format(Entry entry) {
+        return entry.fingerprint + "|" + entry.matches.entrySet().stream()
+                .map(match -> match.getKey() + ":"
+                        + String.join(";", match.getValue()))
+                .collect(Collectors.joining(","));
+    }
+
+    private static Entry parse(String value) {
+        int separator = value.indexOf('|');
+        Map<String, Set<String>> matches = new LinkedHashMap<>();
+        String classes = value.substring(separator + 1);
+        if (!classes.isEmpty()) {
+            for (String match : classes.split(",")) {
+                int index = match.indexOf(':');
+                Set<String> keys = index < 0 ? Collections.emptySet()
+                        : new LinkedHashSet<>(Arrays.asList(
+                                match.substring(index + 1).split(";")));
+                matches.put(index < 0 ? match : match.substring(0, index),
+                        keys);
+            }
+        }
+        return new Entry(value.substring(0, Math.max(separator, 0)), matches);
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(VaadinTypeScanCache.class);
+    }
+}
@@ -0,0 +1,550 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.ScannedGenericBeanDefinition;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Scans the class path for classes annotated with any of the given
+ * annotations or extending any of the given super types.
+ * <p>
+ * All the annotations and super types are checked during a single walk over
+ * the class files of the requested packages and the result is collected into
+ * a {@link VaadinTypeIndex} which can then be queried for each annotation and
+ * super type separately.
+ * <p>
+ * With a parallelism greater than one, the class path roots (directories and
+ * jars) of every package are scanned concurrently in a dedicated
+ * {@link ForkJoinPool}. The resource loader must then be thread safe. The
+ * class files are then read without the lock of Spring's caching metadata
+ * reader factory, which would otherwise serialize the workers.
+ * <p>
+ * With a {@link VaadinTypeScanCache}, the classes of roots which have not
+ * changed since they were cached are taken from the cache instead of being
+ * scanned again.
+ * <p>
+ * With mapped class scanning enabled, the class files of local directories and
+ * jars are read directly by a {@link MappedClassScanner} instead of through
+ * Spring resources and metadata readers.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class VaadinTypeScanner {
+
+    private final Environment environment;
+
+    private final ResourceLoader resourceLoader;
+
+    private final int parallelism;
+
+    private final VaadinTypeScanCache cache;
+
+    private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+    private boolean mappedClassScan;
+
+    private Predicate<String> pathFilter = path -> true;
+
+    /**
+     * Class path scanner that reuses infrastructure from Spring while also
+     * considering abstract types.
+     * <p>
+     * The scanner remembers which annotations and super types every candidate
+     * matches.
+     */
+    static class ClassPathScanner
+            extends ClassPathScanningCandidateComponentProvider {
+
+        private final Map<String, TypeFilter> filters = new LinkedHashMap<>();
+
+        private final Map<String, Set<String>> matches = new ConcurrentHashMap<>();
+
+        private final ResourcePatternResolver resourcePatternResolver;
+
+        private final AtomicInteger resourceCount = new AtomicInteger();
+
+        private final MappedClassScanner mappedScanner;
+
+        private ClassPathScanner(Environment environment,
+                ResourceLoader resourceLoader,
+                Collection<Class<? extends Annotation>> annotations,
+                Collection<Class<?>> types, MappedClassScanner mappedScanner,
+                boolean concurrent) {
+            super(false, environment);
+            this.mappedScanner = mappedScanner;
+            setResourceLoader(resourceLoader);
+            if (concurrent) {
+                setMetadataReaderFactory(
+                        new ConcurrentMetadataReaderFactory(resourceLoader));
+            }
+
+            annotations.forEach(annotation -> filters.put(annotation.getName(),
+                    new AnnotationTypeFilter(annotation)));
+            types.forEach(type -> filters.put(type.getName(),
+                    new AssignableTypeFilter(type)));
+            filters.values().forEach(this::addIncludeFilter);
+            resourcePatternResolver = ResourcePatternUtils
+                    .getResourcePatternResolver(resourceLoader);
+        }
+
+        /**
+         * Finds the directories and jars of the class path containing the
+         * given package.
+         */
+        private Resource[] findRoots(String basePackage) throws IOException {
+            return resourcePatternResolver.getResources(
+                    ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
+                            + resolveBasePackage(basePackage) + '/');
+        }
+
+        /**
+         * Gets the path of the given package, the path of the classes of a
+         * root returned by {@link #findRoots(String)} starts with.
+         */
+        private String getRootPath(String basePackage) {
+            String path = resolveBasePackage(basePackage);
+            return path.isEmpty() ? path : path + '/';
+        }
+
+        /**
+         * Same as {@link #findCandidateComponents(String)} but limited to the
+         * classes inside a single root returned by {@link #findRoots(String)}.
+         */
+        private List<String> findCandidateClassNames(Resource root,
+                String rootPath) throws IOException {
+            if (mappedScanner != null) {
+                Map<String, Set<String>> found = mappedScanner.scan(root,
+                        rootPath);
+                if (found != null) {
+                    addMatches(found);
+                    return new ArrayList<>(found.keySet());
+                }
+            }
+            List<String> classNames = new ArrayList<>();
+            for (Resource resource : resourcePatternResolver
+                    .getResources(root.getURL().toString() + "**/*.class")) {
+                try {
+                    MetadataReader metadataReader = getMetadataReaderFactory()
+                            .getMetadataReader(resource);
+                    if (isCandidateComponent(metadataReader)) {
+                        ScannedGenericBeanDefinition definition = new ScannedGenericBeanDefinition(
+                                metadataReader);
+                        definition.setSource(resource);
+                        if (isCandidateComponent(definition)) {
+                            classNames.add(definition.getBeanClassName());
+                        }
+                    }
+                } catch (FileNotFoundException e) {
+                    // Not readable, skipped the same way as Spring does
+                } catch (IOException | RuntimeException e) {
+                    throw new BeanDefinitionStoreException(
+                            "Failed to read candidate component class: "
+                                    + resource,
+                            e);
+                }
+            }
+            return classNames;
+        }
+
+        @Override
+        protected boolean isCandidateComponent(MetadataReader metadataReader)
+                throws IOException {
+            resourceCount.incrementAndGet();
+            if (!super.isCandidateComponent(metadataReader)) {
+                return false;
+            }
+            Set<String> keys = new LinkedHashSet<>();
+            for (Map.Entry<String, TypeFilter> entry : filters.entrySet()) {
+                if (entry.getValue().match(metadataReader,
+                        getMetadataReaderFactory())) {
+                    keys.add(entry.getKey());
+                }
+            }
+            matches.put(metadataReader.getClassMetadata().getClassName(),
+                    keys);
+            return true;
+        }
+
+        @Override
+        protected boolean isCandidateComponent(
+                AnnotatedBeanDefinition beanDefinition) {
+            return super.isCandidateComponent(beanDefinition)
+                    || beanDefinition.getMetadata().isAbstract();
+        }
+
+        private Set<String> getMatches(String className) {
+            return matches.getOrDefault(className, Collections.emptySet());
+        }
+
+        private int getResourceCount() {
+            return resourceCount.get() + (mappedScanner == null ? 0
+                    : mappedScanner.getResourceCount());
+        }
+
+        private void addMatches(Map<String, Set<String>> cachedMatches) {
+            matches.putAll(cachedMatches);
+        }
+    }
+
+    /**
+     * Metadata reader factory which can be used from several threads at once.
+     * <p>
+     * Unlike Spring's caching factory, which parses the class files while
+     * holding a lock unless the resource loader is a
+     * {@code DefaultResourceLoader}, the class files are parsed without
+     * locking. Only the readers looked up by class name, i.e. the super types
+     * checked by the type filters, are cached: the scanned class files are
+     * read once anyway.
+     */
+    private static class ConcurrentMetadataReaderFactory
+            extends SimpleMetadataReaderFactory {
+
+        private final Map<String, MetadataReader> readers = new ConcurrentHashMap<>();
+
+        private ConcurrentMetadataReaderFactory(
+                ResourceLoader resourceLoader) {
+            super(resourceLoader);
+        }
+
+        @Override
+        public MetadataReader getMetadataReader(String className)
+                throws IOException {
+            MetadataReader reader = readers.get(className);
+            if (reader == null) {
+                reader = super.getMetadataReader(className);
+                readers.put(className, reader);
+            }
+            return reader;
+        }
+    }
+
+    /**
+     * Creates a new scanner which uses the given {@code resourceLoader} to
+     * find class files.
+     *
+     * @param environment
+     *            the environment to resolve package placeholders with
+     * @param resourceLoader
+     *            the resource loader to look class files up with
+     */
+    VaadinTypeScanner(Environment environment, ResourceLoader resourceLoader) {
+        this(environment, resourceLoader, 1);
+    }
+
+    /**
+     * Creates a new scanner which uses the given {@code resourceLoader} to
+     * find class files using up to {@code parallelism} threads.
+     *
+     * @param environment
+     *            the environment to resolve package placeholders with
+     * @param resourceLoader
+     *            the resource loader to look class files up with, must be
+     *            thread safe if {@code parallelism} is greater than one
+     * @param parallelism
+     *            the maximum number of threads to scan with, {@code 1} to scan
+     *            in the calling thread
+     */
+    VaadinTypeScanner(Environment environment, ResourceLoader resourceLoader,
+            int parallelism) {
+        this(environment, resourceLoader, parallelism, null);
+    }
+
+    /**
+     * Creates a new scanner which uses the given {@code resourceLoader} to
+     * find class files using up to {@code parallelism} threads and reuses the
+     * classes of unchanged class path roots from the given {@code cache}.
+     *
+     * @param environment
+     *            the environment to resolve package placeholders with
+     * @param resourceLoader
+     *            the resource loader to look class files up with, must be
+     *            thread safe if {@code parallelism} is greater than one
+     * @param parallelism
+     *            the maximum number of threads to scan with, {@code 1} to scan
+     *            in the calling thread
+     * @param cache
+     *            the loaded cache to use and update, or {@code null} to always
+     *            scan
+     */
+    VaadinTypeScanner(Environment environment, ResourceLoader resourceLoader,
+            int parallelism, VaadinTypeScanCache cache) {
+        this.environment = environment;
+        this.resourceLoader = resourceLoader;
+        this.parallelism = Math.max(1, parallelism);
+        this.cache = cache;
+    }
+
+    /**
+     * Scans the {@code packages} for classes annotated with any of the
+     * {@code annotations} or extending any of the {@code types}.
+     *
+     * @param packages
+     *            the packages to scan
+     * @param annotations
+     *            the annotations to look for
+     * @param types
+     *            the super types to look for
+     * @return the index of found classes
+     */
+    VaadinTypeIndex scan(Collection<String> packages,
+            Collection<Class<? extends Annotation>> annotations,
+            Collection<Class<?>> types) {
+        Set<String> roots = VaadinTypeIndex.getRootPackages(packages);
+        MappedClassScanner mappedScanner = null;
+        if (mappedClassScan) {
+            ClassLoader classLoader = resourceLoader.getClassLoader();
+            mappedScanner = new MappedClassScanner(
+                    classLoader != null ? classLoader
+                            : ClassUtils.getDefaultClassLoader(),
+                    annotations, types, pathFilter);
+        }
+        ClassPathScanner scanner = createScanner(annotations, types,
+                mappedScanner);
+        Map<String, Set<String>> classNames = new HashMap<>();
+        for (String className : parallelism > 1 || cache != null
+                || mappedScanner != null ? scanRoots(scanner, roots)
+                : scanSequentially(scanner, roots)) {
+            scanner.getMatches(className)
+                    .forEach(key -> classNames
+                            .computeIfAbsent(key,
+                                    name -> new LinkedHashSet<>())
+                            .add(className));
+        }
+        return new VaadinTypeIndex(roots,
+                VaadinTypeIndex.getKeys(annotations, types), classNames);
+    }
+
+    /**
+     * Sets the application startup to record a step for each scanned package
+     * with.
+     *
+     * @param applicationStartup
+     *            the application startup to use
+     */
+    void setApplicationStartup(ApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
+    /**
+     * Sets whether the class files of local directories and jars are read
+     * directly instead of through Spring resources and metadata readers.
+     * {@code @Conditional} annotations are not evaluated for these classes.
+     *
+     * @param mappedClassScan
+     *            {@code true} to read class files directly
+     */
+    void setMappedClassScan(boolean mappedClassScan) {
+        this.mappedClassScan = mappedClassScan;
+    }
+
+    /**
+     * Sets the filter for the class files read directly with mapped class
+     * scanning. Resources found through the resource loader are filtered by
+     * the loader itself.
+     *
+     * @param pathFilter
+     *            tells whether a class file, given by its path relative to the
+     *            class path root, is scanned
+     */
+    void setPathFilter(Predicate<String> pathFilter) {
+        this.pathFilter = pathFilter;
+    }
+
+    /**
+     * Creates the Spring based scanner for the given annotations and super
+     * types.
+     *
+     * @param annotations
+     *            the annotations to look for
+     * @param types
+     *            the super types to look for
+     * @param mappedScanner
+     *            the scanner reading class files directly, or {@code null}
+     * @return the class path scanner
+     */
+    ClassPathScanner createScanner(
+            Collection<Class<? extends Annotation>> annotations,
+            Collection<Class<?>> types, MappedClassScanner mappedScanner) {
+        return new ClassPathScanner(environment, resourceLoader, annotations,
+                types, mappedScanner, parallelism > 1);
+    }
+
+    private List<String> scanSequentially(ClassPathScanner scanner,
+            Collection<String> packages) {
+        List<String> classNames = new ArrayList<>();
+        for (String pkg : packages) {
+            classNames.addAll(scanPackage(scanner, pkg, () -> scanner
+                    .findCandidateComponents(pkg).stream()
+                    .map(BeanDefinition::getBeanClassName)
+                    .collect(Collectors.toList())));
+        }
+        return classNames;
+    }
+
+    private List<String> scanRoots(ClassPathScanner scanner,
+            Collection<String> packages) {
+        Map<String, Map<Resource, String>> fingerprints = new LinkedHashMap<>();
+        try {
+            Map<String, String> byUrl = new HashMap<>();
+            for (String pkg : packages) {
+                Map<Resource, String> roots = new LinkedHashMap<>();
+                for (Resource root : scanner.findRoots(pkg)) {
+                    String fingerprint = cache == null ? null
+                            : VaadinTypeScanCache.fingerprint(root);
+                    roots.put(root, fingerprint);
+                    byUrl.put(root.getURL().toString(), fingerprint);
+                }
+                fingerprints.put(pkg, roots);
+            }
+            if (cache != null) {
+                cache.validate(byUrl);
+            }
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException(
+                    "I/O failure during classpath scanning", e);
+        }
+
+        List<String> classNames = new ArrayList<>();
+        fingerprints.forEach((pkg, roots) -> classNames
+                .addAll(scanPackage(scanner, pkg, () -> scanPackageRoots(
+                        scanner, scanner.getRootPath(pkg), roots))));
+        return classNames;
+    }
+
+    private List<String> scanPackageRoots(ClassPathScanner scanner,
+            String rootPath, Map<Resource, String> roots) {
+        if (parallelism > 1) {
+            List<Callable<List<String>>> tasks = new ArrayList<>();
+            roots.forEach((root, fingerprint) -> tasks.add(
+                    () -> scanRoot(scanner, root, rootPath, fingerprint)));
+            return scanInParallel(tasks);
+        }
+        List<String> classNames = new ArrayList<>();
+        try {
+            for (Map.Entry<Resource, String> entry : roots.entrySet()) {
+                classNames.addAll(scanRoot(scanner, entry.getKey(), rootPath,
+                        entry.getValue()));
+            }
+        } catch (IOException e) {
+            throw new BeanDefinitionStoreException(
+                    "I/O failure during classpath scanning", e);
+        }
+        return classNames;
+    }
+
+    private List<String> scanPackage(ClassPathScanner scanner, String pkg,
+            Supplier<List<String>> scan) {
+        StartupStep step = applicationStartup
+                .start(VaadinServletContextInitializer.STARTUP_STEP_PREFIX
+                        + "scan");
+        step.tag("package", pkg);
+        int resources = scanner.getResourceCount();
+        List<String> classNames = scan.get();
+        step.tag("resources",
+                String.valueOf(scanner.getResourceCount() - resources));
+        step.tag("classes", String.valueOf(classNames.size()));
+        step.tag("matches", String.valueOf(classNames.stream()
+                .mapToInt(className -> scanner.getMatches(className).size())
+                .sum()));
+        step.end();
+        return classNames;
+    }
+
+    private List<String> scanRoot(ClassPathScanner scanner, Resource root,
+            String rootPath, String fingerprint) throws IOException {
+        if (fingerprint == null) {
+            return scanner.findCandidateClassNames(root, rootPath);
+        }
+        String url = root.getURL().toString();
+        Map<String, Set<String>> cached = cache.get(url, fingerprint);
+        if (cached != null) {
+            scanner.addMatches(cached);
+            return new ArrayList<>(cached.keySet());
+        }
+        List<String> classNames = scanner.findCandidateClassNames(root,
+                rootPath);
+        Map<String, Set<String>> matches = new LinkedHashMap<>();
+        classNames.forEach(className -> matches.put(className,
+                scanner.getMatches(className)));
+        cache.put(url, fingerprint, matches);
+        return classNames;
+    }
+
+    private List<String> scanInParallel(
+            List<Callable<List<String>>> tasks) {
+        ForkJoinPool pool = new ForkJoinPool(
+                Math.min(parallelism, Math.max(1, tasks.size())));
+        try {
+            List<String> classNames = new ArrayList<>();
+            for (Future<List<String>> future : pool.invokeAll(tasks)) {
+                classNames.addAll(future.get());
+            }
+            return classNames;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while scanning the class path", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BeanDefinitionStoreException(
+                    "I/O failure during classpath scanning", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.annotation;
+
+import static com.vaadin.flow.spring.scopes.VaadinRouteScope.VAADIN_ROUTE_SCOPE_NAME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.context.annotation.Scope;
+
+/**
+ * Stereotype annotation for Spring's {@code @Scope("vaadin-route")}.
+ * <p>
+ * A route scoped bean lives while the navigation target it has been created
+ * for, or the route component given by {@link RouteScopeOwner}, stays in the
+ * active navigation chain of the UI, and is destroyed after a navigation
+ * leaving it.
+ *
+ * @author Vaadin Ltd
+ */
+@Scope(VAADIN_ROUTE_SCOPE_NAME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RouteScope {
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.vaadin.flow.component.HasElement;
+
+/**
+ * Binds a {@link RouteScope} bean to a route target or router layout instead
+ * of the navigation target it is created for, e.g. to share the bean between
+ * the views of a layout.
+ * <p>
+ * The owner must be in the navigation chain of the UI whenever the bean is
+ * accessed.
+ *
+ * @author Vaadin Ltd
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RouteScopeOwner {
+
+    /**
+     * The route target or router layout owning the bean.
+     *
+     * @return the owner class
+     */
+    Class<? extends HasElement> value();
+}
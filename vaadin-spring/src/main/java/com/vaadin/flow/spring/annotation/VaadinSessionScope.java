@@ -27,6 +27,10 @@ import org.springframework.context.annotation.Scope;
 
 /**
  * Stereotype annotation for Spring's {@code @Scope("vaadin-session")}.
+ * <p>
+ * A bean marked {@link #evictable()} can be evicted from the session once the
+ * session holds more evictable beans than set by the
+ * {@code vaadin.max-evictable-session-beans} property.
  *
  * @author Vaadin Ltd
  */
@@ -35,4 +39,15 @@ import org.springframework.context.annotation.Scope;
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface VaadinSessionScope {
+
+    /**
+     * Whether the bean can be evicted from the session, the least recently
+     * used first, running its destruction callback. An evicted bean is created
+     * again the next time it is requested, so the bean should only hold data
+     * which can be recreated, like a cache, and be injected through a scoped
+     * proxy for its users to see the new instance.
+     *
+     * @return {@code true} if the bean can be evicted, {@code false} by default
+     */
+    boolean evictable() default false;
 }
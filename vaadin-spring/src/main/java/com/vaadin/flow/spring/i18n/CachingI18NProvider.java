@@ -0,0 +1,203 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.i18n;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.util.ConcurrentLruCache;
+
+import com.vaadin.flow.i18n.I18NProvider;
+
+/**
+ * I18N provider keeping the most recently used translations of another
+ * provider.
+ * <p>
+ * Translations are cached by key, locale and parameters, the parameters being
+ * compared with {@code equals}. Used by the Spring instantiator around the
+ * I18N provider bean when the {@code vaadin.i18n-cache-size} property is set,
+ * in which case the instance returned by
+ * {@code Instantiator.getI18NProvider()} can be cast to this class to read the
+ * hit rate of the cache. The provider should then return the same translation
+ * for the same arguments as long as the application runs.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public class CachingI18NProvider implements I18NProvider {
+
+    /**
+     * Marker of a translation which is {@code null}, not supported by the
+     * cache.
+     */
+    private static final String NO_TRANSLATION = new String();
+
+    private final I18NProvider provider;
+
+    private final int maxSize;
+
+    private transient ConcurrentLruCache<TranslationKey, String> translations;
+
+    private transient LongAdder requests;
+
+    private transient LongAdder misses;
+
+    private static final class TranslationKey implements Serializable {
+
+        private final String key;
+        private final Locale locale;
+        private final Object[] params;
+        private final int hash;
+
+        private TranslationKey(String key, Locale locale, Object[] params) {
+            this.key = key;
+            this.locale = locale;
+            this.params = params;
+            hash = 31 * Objects.hash(key, locale) + Arrays.hashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TranslationKey)) {
+                return false;
+            }
+            TranslationKey other = (TranslationKey) obj;
+            return hash == other.hash && Objects.equals(key, other.key)
+                    && Objects.equals(locale, other.locale)
+                    && Arrays.equals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Creates a new caching provider.
+     *
+     * @param provider
+     *            the provider of the translations
+     * @param maxSize
+     *            the maximum number of translations kept
+     */
+    public CachingI18NProvider(I18NProvider provider, int maxSize) {
+        this.provider = Objects.requireNonNull(provider);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum size of the cache must be positive");
+        }
+        this.maxSize = maxSize;
+        init();
+    }
+
+    @Override
+    public List<Locale> getProvidedLocales() {
+        return provider.getProvidedLocales();
+    }
+
+    @Override
+    public String getTranslation(String key, Locale locale, Object... params) {
+        requests.increment();
+        String translation = translations
+                .get(new TranslationKey(key, locale, params));
+        return translation == NO_TRANSLATION ? null : translation;
+    }
+
+    /**
+     * Gets the provider of the translations.
+     *
+     * @return the provider
+     */
+    public I18NProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Gets the number of translations currently cached.
+     *
+     * @return the cache size
+     */
+    public int getSize() {
+        return translations.size();
+    }
+
+    /**
+     * Gets the number of translations requested.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Gets the number of translations requested which were not cached.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the ratio of the translations requested which were cached.
+     *
+     * @return the hit rate between {@code 0} and {@code 1}, {@code 0} if no
+     *         translation has been requested
+     */
+    public double getHitRate() {
+        long requestCount = requests.sum();
+        return requestCount == 0 ? 0
+                : (double) (requestCount - misses.sum()) / requestCount;
+    }
+
+    /**
+     * Removes all the cached translations, e.g. once the translations of the
+     * provider have been reloaded.
+     */
+    public void clear() {
+        translations.clear();
+    }
+
+    private String translate(TranslationKey key) {
+        misses.increment();
+        String translation = provider.getTranslation(key.key, key.locale,
+                key.params);
+        return translation == null ? NO_TRANSLATION : translation;
+    }
+
+    private void init() {
+        translations = new ConcurrentLruCache<>(maxSize, this::translate);
+        requests = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        init();
+    }
+}
@@ -15,9 +15,21 @@
  */
 package com.vaadin.flow.spring.scopes;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.Scope;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
 
 import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.server.VaadinSessionState;
@@ -32,7 +44,20 @@ import com.vaadin.flow.server.VaadinSessionState;
  * @author Vaadin Ltd
  *
  */
-abstract class AbstractScope implements Scope, BeanFactoryPostProcessor {
+abstract class AbstractScope
+        implements Scope, BeanFactoryPostProcessor, DisposableBean {
+
+    private static final int DESTRUCTION_THREADS = 2;
+
+    private static final int DESTRUCTION_QUEUE_CAPACITY = 1000;
+
+    private static final long DESTRUCTION_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private VaadinScopesFootprint footprint;
+
+    private VaadinScopesMetrics.ScopeMetrics metrics;
+
+    private ThreadPoolExecutor destructionExecutor;
 
     @Override
     public Object resolveContextualObject(String key) {
@@ -81,4 +106,169 @@ abstract class AbstractScope implements Scope, BeanFactoryPostProcessor {
         }
         return session;
     }
+
+    /**
+     * Enables the footprint report of the scoped beans if the
+     * {@code vaadin.scope-footprint} property is set, registering the report
+     * bean unless another Vaadin scope has already done it.
+     *
+     * @param beanFactory
+     *            the bean factory the scope is registered in
+     */
+    void initFootprint(ConfigurableListableBeanFactory beanFactory) {
+        Environment environment = getEnvironment(beanFactory);
+        if (environment == null || !environment
+                .getProperty("vaadin.scope-footprint", Boolean.class, false)) {
+            return;
+        }
+        footprint = getOrRegisterSingleton(beanFactory,
+                VaadinScopesFootprint.BEAN_NAME,
+                () -> new VaadinScopesFootprint(beanFactory));
+    }
+
+    /**
+     * Enables the metrics of the bean stores of the scope if the
+     * {@code vaadin.scope-metrics} property is set, registering the metrics
+     * bean unless another Vaadin scope has already done it.
+     *
+     * @param beanFactory
+     *            the bean factory the scope is registered in
+     * @param scope
+     *            the scope name
+     */
+    void initMetrics(ConfigurableListableBeanFactory beanFactory,
+            String scope) {
+        Environment environment = getEnvironment(beanFactory);
+        if (environment == null || !environment
+                .getProperty("vaadin.scope-metrics", Boolean.class, false)) {
+            return;
+        }
+        long warningThreshold = environment.getProperty(
+                "vaadin.scope-destruction-warning-threshold", Long.class, 0L);
+        metrics = getOrRegisterSingleton(beanFactory,
+                VaadinScopesMetrics.BEAN_NAME,
+                () -> new VaadinScopesMetrics(warningThreshold))
+                        .getScopeMetrics(scope);
+    }
+
+    /**
+     * Runs the destruction callbacks of the bean stores of the scope in a
+     * bounded thread pool, after releasing the session lock, if the
+     * {@code vaadin.scope-async-destruction} property is set.
+     * <p>
+     * The callbacks of a store run in a single task, so in the same order as
+     * when running synchronously, but the callbacks of different stores may
+     * run concurrently and their failures are only logged. The callbacks run
+     * without the session lock and with no current session, UI or request:
+     * they may run concurrently with requests of the same session, and
+     * must neither access components nor call Vaadin scoped proxies. When the
+     * queue of the pool is full, or once the scope has been destroyed, the
+     * callbacks run synchronously.
+     *
+     * @param beanFactory
+     *            the bean factory the scope is registered in
+     * @param scope
+     *            the scope name
+     */
+    void initAsyncDestruction(ConfigurableListableBeanFactory beanFactory,
+            String scope) {
+        Environment environment = getEnvironment(beanFactory);
+        if (environment == null || !environment.getProperty(
+                "vaadin.scope-async-destruction", Boolean.class, false)) {
+            return;
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                DESTRUCTION_THREADS, DESTRUCTION_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(DESTRUCTION_QUEUE_CAPACITY), task -> {
+                    Thread thread = new Thread(task,
+                            "vaadin-" + scope + "-destruction");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, pool) -> task.run());
+        executor.allowCoreThreadTimeOut(true);
+        destructionExecutor = executor;
+    }
+
+    /**
+     * Stops the thread pool running the destruction callbacks, if any, when
+     * the application context is closed. The queued callbacks run in the
+     * calling thread, then the running ones are awaited, so that none runs
+     * against a closed context.
+     */
+    @Override
+    public void destroy() {
+        ThreadPoolExecutor executor = destructionExecutor;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        List<Runnable> queued = new ArrayList<>();
+        executor.getQueue().drainTo(queued);
+        queued.forEach(Runnable::run);
+        try {
+            if (!executor.awaitTermination(
+                    DESTRUCTION_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LoggerFactory.getLogger(AbstractScope.class).warn(
+                        "Destruction callbacks of Vaadin scoped beans are still"
+                                + " running after the context was closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds a bean store to the footprint report and metrics, if enabled, and
+     * sets its destruction executor.
+     *
+     * @param scope
+     *            the scope name
+     * @param beanStore
+     *            the bean store
+     * @param uiId
+     *            the id of the UI of the store, or {@code -1} for the session
+     *            scope
+     */
+    void trackBeanStore(String scope, BeanStore beanStore, int uiId) {
+        if (footprint != null) {
+            footprint.track(scope, beanStore, uiId);
+        }
+        if (metrics != null) {
+            beanStore.setMetrics(metrics);
+        }
+        if (destructionExecutor != null) {
+            beanStore.setDestructionExecutor(destructionExecutor);
+        }
+    }
+
+    /**
+     * Gets the environment of the application context of a bean factory.
+     *
+     * @param beanFactory
+     *            the bean factory
+     * @return the environment or {@code null} if the bean factory does not
+     *         belong to an application context
+     */
+    static Environment getEnvironment(
+            ConfigurableListableBeanFactory beanFactory) {
+        if (!beanFactory.containsBean(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME)) {
+            return null;
+        }
+        return beanFactory.getBean(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                Environment.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getOrRegisterSingleton(
+            ConfigurableListableBeanFactory beanFactory, String name,
+            Supplier<T> factory) {
+        if (beanFactory.containsSingleton(name)) {
+            return (T) beanFactory.getSingleton(name);
+        }
+        T singleton = factory.get();
+        beanFactory.registerSingleton(name, singleton);
+        return singleton;
+    }
 }
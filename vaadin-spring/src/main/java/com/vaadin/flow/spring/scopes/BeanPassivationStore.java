@@ -0,0 +1,68 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+/**
+ * Storage for the serialized form of passivated UI scoped beans.
+ * <p>
+ * UI scoped beans idle for longer than the
+ * {@code vaadin.ui-scope-passivation-timeout} property are serialized,
+ * compressed and written to the store, then read back when they are accessed
+ * again. The beans are kept in memory, in their compressed form, unless the
+ * application context contains a bean implementing this interface, e.g. to
+ * keep them on a local disk.
+ * <p>
+ * A restored bean has its dependencies injected again by the bean factory,
+ * but it is not initialized again: its {@code @PostConstruct} methods, init
+ * methods and aware callbacks do not run, and the bean post-processors are
+ * not applied.
+ * <p>
+ * Implementations must be thread safe.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public interface BeanPassivationStore {
+
+    /**
+     * Writes the data of a passivated bean.
+     *
+     * @param key
+     *            the unique key of the data
+     * @param data
+     *            the serialized and compressed bean
+     */
+    void write(String key, byte[] data);
+
+    /**
+     * Reads the data of a passivated bean.
+     *
+     * @param key
+     *            the key of the data
+     * @return the data written for the key or {@code null} if it is not
+     *         available anymore
+     */
+    byte[] read(String key);
+
+    /**
+     * Removes the data of a passivated bean, once the bean has been restored
+     * or destroyed.
+     *
+     * @param key
+     *            the key of the data
+     */
+    void remove(String key);
+}
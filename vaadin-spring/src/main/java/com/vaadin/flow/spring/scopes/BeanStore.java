@@ -16,8 +16,11 @@
 package com.vaadin.flow.spring.scopes;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import org.slf4j.Logger;
@@ -29,6 +32,15 @@ import com.vaadin.flow.server.VaadinSession;
 
 /**
  * Spring bean store class to keep scope objects.
+ * <p>
+ * Existing objects are read without locking the session, the session lock is
+ * only taken to create, remove and destroy objects.
+ * <p>
+ * The destruction callbacks of a store run one after the other, in no
+ * particular order, after the objects have been removed from the store. They
+ * run in the thread destroying the store, holding the session lock, unless a
+ * destruction executor is set. Failing callbacks are logged and do not prevent
+ * the other callbacks from running.
  *
  * @author Vaadin Ltd
  *
@@ -40,9 +52,15 @@ class BeanStore implements Serializable {
 
     private final VaadinSession session;
 
-    private final Map<String, Object> objects = new HashMap<>();
+    final Map<String, Object> objects = new CopyOnWriteArrayMap<>();
 
-    private final Map<String, Runnable> destructionCallbacks = new HashMap<>();
+    final Map<String, Runnable> destructionCallbacks = new CopyOnWriteArrayMap<>();
+
+    private volatile boolean destroyed;
+
+    private transient volatile VaadinScopesMetrics.ScopeMetrics metrics;
+
+    private transient volatile Executor destructionExecutor;
 
     /**
      * Creates a new instance for the given {@code session}.
@@ -68,6 +86,10 @@ class BeanStore implements Serializable {
      * @see Scope#get(String, ObjectFactory)
      */
     Object get(String name, ObjectFactory<?> objectFactory) {
+        Object bean = objects.get(name);
+        if (bean != null) {
+            return bean;
+        }
         return execute(() -> doGet(name, objectFactory));
     }
 
@@ -102,30 +124,114 @@ class BeanStore implements Serializable {
         return session;
     }
 
+    /**
+     * Gets the objects currently in the store, without locking the session.
+     *
+     * @return an unmodifiable view of the objects by name
+     */
+    Map<String, Object> getObjects() {
+        return Collections.unmodifiableMap(objects);
+    }
+
+    /**
+     * Checks whether the store has been destroyed.
+     *
+     * @return {@code true} if the store has been destroyed
+     */
+    boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Starts recording the metrics of the store, unless already recording.
+     *
+     * @param scopeMetrics
+     *            the metrics of the scope of the store
+     */
+    void setMetrics(VaadinScopesMetrics.ScopeMetrics scopeMetrics) {
+        if (metrics == null) {
+            metrics = scopeMetrics;
+            scopeMetrics.storeCreated();
+        }
+    }
+
+    /**
+     * Runs the destruction callbacks with the given executor instead of the
+     * thread destroying the store, i.e. after the session lock is released.
+     *
+     * @param executor
+     *            the executor running the destruction callbacks of the store
+     */
+    void setDestructionExecutor(Executor executor) {
+        destructionExecutor = executor;
+    }
+
     Void doDestroy() {
         assert session.hasLock();
-        for (Runnable destructionCallback : destructionCallbacks.values()) {
+        destroyed = true;
+        long start = System.nanoTime();
+        int beanCount = objects.size();
+        List<Runnable> callbacks = new ArrayList<>(
+                destructionCallbacks.values());
+        destructionCallbacks.clear();
+        objects.clear();
+        scheduleDestructionCallbacks(callbacks);
+        VaadinScopesMetrics.ScopeMetrics scopeMetrics = metrics;
+        if (scopeMetrics != null) {
+            scopeMetrics.storeDestroyed(beanCount, System.nanoTime() - start);
+        }
+        return null;
+    }
+
+    /**
+     * Runs destruction callbacks, in the current thread or with the
+     * destruction executor if set.
+     *
+     * @param callbacks
+     *            the callbacks to run
+     */
+    void scheduleDestructionCallbacks(List<Runnable> callbacks) {
+        Executor executor = destructionExecutor;
+        if (executor == null) {
+            runDestructionCallbacks(callbacks);
+        } else {
+            executor.execute(() -> runDestructionCallbacks(callbacks));
+        }
+    }
+
+    private void runDestructionCallbacks(List<Runnable> callbacks) {
+        int failures = 0;
+        for (Runnable destructionCallback : callbacks) {
             try {
                 destructionCallback.run();
             } catch (Exception e) {
+                failures++;
                 LOGGER.error("BeanStore destruction callback failed", e);
             }
         }
-        destructionCallbacks.clear();
-        objects.clear();
-        return null;
+        VaadinScopesMetrics.ScopeMetrics scopeMetrics = metrics;
+        if (scopeMetrics != null && failures > 0) {
+            scopeMetrics.destructionCallbacksFailed(failures);
+        }
     }
 
-    private Object doRemove(String name) {
+    Object doRemove(String name) {
         destructionCallbacks.remove(name);
         return objects.remove(name);
     }
 
-    private Object doGet(String name, ObjectFactory<?> objectFactory) {
+    Object doGet(String name, ObjectFactory<?> objectFactory) {
         Object bean = objects.get(name);
         if (bean == null) {
+            VaadinScopesMetrics.ScopeMetrics scopeMetrics = metrics;
+            long start = scopeMetrics == null ? 0 : System.nanoTime();
             bean = objectFactory.getObject();
-            objects.put(name, bean);
+            if (scopeMetrics != null) {
+                scopeMetrics.beanInstantiated(name, System.nanoTime() - start);
+            }
+            if (bean != null) {
+                objects.put(name, bean);
+            }
         }
         return bean;
     }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map with string keys and non-null values backed by a single array of
+ * alternating keys and values, using open addressing with linear probing.
+ * <p>
+ * As in {@link CopyOnWriteIntMap}, reads never lock: they probe an immutable
+ * table published through a volatile field, and every update copies the table.
+ * Empty maps share the same table and tables are sized to their content, so a
+ * map holding the handful of beans of a typical bean store takes a few dozen
+ * bytes. Iteration works on a snapshot of the map.
+ *
+ * @param <V>
+ *            the value type
+ * @author Vaadin Ltd
+ *
+ */
+class CopyOnWriteArrayMap<V> extends AbstractMap<String, V>
+        implements Serializable {
+
+    private static final Table EMPTY = new Table(new Object[0], 0);
+
+    private volatile Table table = EMPTY;
+
+    private static final class Table implements Serializable {
+        private final Object[] entries;
+        private final int size;
+
+        private Table(Object[] entries, int size) {
+            this.entries = entries;
+            this.size = size;
+        }
+
+        private int capacity() {
+            return entries.length / 2;
+        }
+
+        private int indexOf(Object key) {
+            int capacity = capacity();
+            if (size == 0 || !(key instanceof String)) {
+                return -1;
+            }
+            int mask = capacity - 1;
+            for (int index = hash(key) & mask;; index = (index + 1) & mask) {
+                Object existing = entries[2 * index];
+                if (existing == null) {
+                    return -1;
+                }
+                if (existing == key || existing.equals(key)) {
+                    return index;
+                }
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Table current = table;
+        int index = current.indexOf(key);
+        return index < 0 ? null : (V) current.entries[2 * index + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return table.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.size == 0;
+    }
+
+    @Override
+    public synchronized V put(String key, V value) {
+        assert key != null && value != null;
+        V previous = get(key);
+        Table current = table;
+        int size = previous == null ? current.size + 1 : current.size;
+        table = copy(current, key, value, size);
+        return previous;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        V removed = get(key);
+        if (removed != null) {
+            Table current = table;
+            table = current.size == 1 ? EMPTY
+                    : copy(current, key, null, current.size - 1);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = EMPTY;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        Table snapshot = table;
+        return new AbstractSet<Entry<String, V>>() {
+
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new SnapshotIterator(snapshot);
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size;
+            }
+        };
+    }
+
+    private class SnapshotIterator implements Iterator<Entry<String, V>> {
+
+        private final Object[] entries;
+
+        private int index;
+
+        private String last;
+
+        private SnapshotIterator(Table snapshot) {
+            entries = snapshot.entries;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < entries.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<String, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = (String) entries[index];
+            V value = (V) entries[index + 1];
+            index += 2;
+            advance();
+            return new SimpleImmutableEntry<>(last, value);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            CopyOnWriteArrayMap.this.remove(last);
+            last = null;
+        }
+
+        private void advance() {
+            while (index < entries.length && entries[index] == null) {
+                index += 2;
+            }
+        }
+    }
+
+    /**
+     * Copies the entries of a table into a new table sized for the given
+     * number of entries, replacing the value of a key or removing it if the
+     * value is {@code null}.
+     */
+    private static Table copy(Table current, Object key, Object value,
+            int size) {
+        // keep the load factor at 3/4 at most
+        int capacity = 2;
+        while (size * 4 > capacity * 3) {
+            capacity *= 2;
+        }
+        Object[] entries = new Object[2 * capacity];
+        Object[] existing = current.entries;
+        for (int i = 0; i < existing.length; i += 2) {
+            if (existing[i] != null && !existing[i].equals(key)) {
+                insert(entries, existing[i], existing[i + 1]);
+            }
+        }
+        if (value != null) {
+            insert(entries, key, value);
+        }
+        return new Table(entries, size);
+    }
+
+    private static void insert(Object[] entries, Object key, Object value) {
+        int mask = entries.length / 2 - 1;
+        int index = hash(key) & mask;
+        while (entries[2 * index] != null) {
+            index = (index + 1) & mask;
+        }
+        entries[2 * index] = key;
+        entries[2 * index + 1] = value;
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Map with primitive {@code int} keys and non-null values, using open
+ * addressing with linear probing.
+ * <p>
+ * Reads never lock nor box the key: they probe an immutable table published
+ * through a volatile field. Every update copies the table, so the map is meant
+ * for rarely updated and frequently read data such as the bean stores of the
+ * UIs of a session.
+ *
+ * @param <V>
+ *            the value type
+ * @author Vaadin Ltd
+ *
+ */
+class CopyOnWriteIntMap<V> implements Serializable {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private static final Table EMPTY = new Table(new int[MIN_CAPACITY],
+            new Object[MIN_CAPACITY], 0);
+
+    private volatile Table table = EMPTY;
+
+    private static final class Table implements Serializable {
+        private final int[] keys;
+        private final Object[] values;
+        private final int size;
+
+        private Table(int[] keys, Object[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key
+     *            the key
+     * @return the value or {@code null} if there is no value for the key
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Table current = table;
+        if (current.size == 0) {
+            return null;
+        }
+        int mask = current.keys.length - 1;
+        for (int index = hash(key) & mask;; index = (index + 1) & mask) {
+            Object value = current.values[index];
+            if (value == null) {
+                return null;
+            }
+            if (current.keys[index] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value, not {@code null}
+     */
+    synchronized void put(int key, V value) {
+        assert value != null;
+        Table current = table;
+        int capacity = current.keys.length;
+        if ((current.size + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        int[] keys = new int[capacity];
+        Object[] values = new Object[capacity];
+        int size = 0;
+        for (int i = 0; i < current.keys.length; i++) {
+            Object existing = current.values[i];
+            if (existing != null && current.keys[i] != key) {
+                insert(keys, values, current.keys[i], existing);
+                size++;
+            }
+        }
+        insert(keys, values, key, value);
+        table = new Table(keys, values, size + 1);
+    }
+
+    /**
+     * Removes the value of a key.
+     *
+     * @param key
+     *            the key
+     * @return the removed value or {@code null} if there was no value for the
+     *         key
+     */
+    synchronized V remove(int key) {
+        V removed = get(key);
+        if (removed == null) {
+            return null;
+        }
+        Table current = table;
+        int capacity = current.keys.length;
+        while (capacity > MIN_CAPACITY && (current.size - 1) * 4 < capacity) {
+            capacity /= 2;
+        }
+        int[] keys = new int[capacity];
+        Object[] values = new Object[capacity];
+        for (int i = 0; i < current.keys.length; i++) {
+            Object existing = current.values[i];
+            if (existing != null && current.keys[i] != key) {
+                insert(keys, values, current.keys[i], existing);
+            }
+        }
+        table = new Table(keys, values, current.size - 1);
+        return removed;
+    }
+
+    /**
+     * Gets a snapshot of the values.
+     *
+     * @return the values
+     */
+    @SuppressWarnings("unchecked")
+    List<V> values() {
+        Table current = table;
+        List<V> values = new ArrayList<>(current.size);
+        for (Object value : current.values) {
+            if (value != null) {
+                values.add((V) value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets the number of keys.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return table.size;
+    }
+
+    /**
+     * Removes all the keys.
+     */
+    synchronized void clear() {
+        table = EMPTY;
+    }
+
+    private static void insert(int[] keys, Object[] values, int key,
+            Object value) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (values[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+    }
+
+    private static int hash(int key) {
+        // UI ids are sequential, spread them anyway in case of gaps
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+
+import com.vaadin.flow.function.SerializablePredicate;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Bean store which keeps at most a given number of evictable beans, evicting
+ * the least recently used ones.
+ * <p>
+ * An evicted bean is removed from the store and its destruction callback is
+ * run, it is created again through its {@link ObjectFactory} the next time it
+ * is requested. Eviction is disabled until
+ * {@link #setEviction(int, SerializablePredicate)} is called.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class EvictingBeanStore extends BeanStore {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(EvictingBeanStore.class.getName());
+
+    private transient volatile SerializablePredicate<String> evictable;
+
+    private transient volatile int maxEvictableBeans;
+
+    /**
+     * Last access time of the evictable beans in the store, by name, only
+     * allocated once eviction is enabled.
+     */
+    private transient volatile Map<String, Long> accessStamps;
+
+    /**
+     * Creates a new instance for the given {@code session}.
+     *
+     * @param session
+     *            a vaadin session
+     */
+    EvictingBeanStore(VaadinSession session) {
+        super(session);
+    }
+
+    /**
+     * Enables the eviction of the beans of the store.
+     *
+     * @param maxEvictableBeans
+     *            the maximum number of evictable beans kept in the store
+     * @param evictable
+     *            tells whether a bean name is evictable
+     */
+    void setEviction(int maxEvictableBeans,
+            SerializablePredicate<String> evictable) {
+        assert getVaadinSession().hasLock();
+        if (accessStamps == null) {
+            Map<String, Long> stamps = new ConcurrentHashMap<>();
+            objects.keySet().stream().filter(evictable)
+                    .forEach(name -> stamps.put(name, Long.MIN_VALUE));
+            accessStamps = stamps;
+        }
+        this.maxEvictableBeans = maxEvictableBeans;
+        this.evictable = evictable;
+        evictExcessBeans(null);
+    }
+
+    @Override
+    Object get(String name, ObjectFactory<?> objectFactory) {
+        Object bean = super.get(name, objectFactory);
+        Map<String, Long> stamps = accessStamps;
+        if (stamps != null) {
+            // replace rather than put: the bean may have been evicted since
+            stamps.replace(name, System.nanoTime());
+        }
+        return bean;
+    }
+
+    @Override
+    Object doGet(String name, ObjectFactory<?> objectFactory) {
+        boolean created = !objects.containsKey(name);
+        Object bean = super.doGet(name, objectFactory);
+        SerializablePredicate<String> policy = evictable;
+        if (created && bean != null && policy != null && policy.test(name)) {
+            accessStamps.put(name, System.nanoTime());
+            evictExcessBeans(name);
+        }
+        return bean;
+    }
+
+    @Override
+    Object doRemove(String name) {
+        if (accessStamps != null) {
+            accessStamps.remove(name);
+        }
+        return super.doRemove(name);
+    }
+
+    @Override
+    Void doDestroy() {
+        if (accessStamps != null) {
+            accessStamps.clear();
+        }
+        return super.doDestroy();
+    }
+
+    private void evictExcessBeans(String keptName) {
+        while (accessStamps.size() > maxEvictableBeans) {
+            String eldest = null;
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : accessStamps.entrySet()) {
+                if (entry.getValue() < oldest
+                        && !entry.getKey().equals(keptName)) {
+                    eldest = entry.getKey();
+                    oldest = entry.getValue();
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            evict(eldest);
+        }
+    }
+
+    private void evict(String name) {
+        LOGGER.debug("Evicting the least recently used bean '{}'", name);
+        accessStamps.remove(name);
+        objects.remove(name);
+        Runnable callback = destructionCallbacks.remove(name);
+        if (callback != null) {
+            scheduleDestructionCallbacks(Collections.singletonList(callback));
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectFactory;
+
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Bean store of a UI whose beans can be passivated once idle and are restored
+ * when accessed again.
+ * <p>
+ * Only the targets of scoped proxies without destruction callbacks are
+ * passivated: any other reference to the bean would otherwise keep the old
+ * instance alive and miss the changes made to the restored one. When the
+ * session is serialized the passivated beans are serialized along with it and
+ * restored from there.
+ * <p>
+ * Existing beans are read without the session lock. Passivation holds the
+ * lock and counts these reads: if a bean was read while the beans were being
+ * serialized, the passivation is cancelled and the live instances are kept,
+ * since the reader may still change them. A single call on a bean lasting
+ * longer than the passivation timeout is not detected.
+ * <p>
+ * A restored bean is autowired by the bean factory, so that its transient
+ * {@code @Autowired}, {@code @Value} and {@code @Resource} fields are injected
+ * again. It is not initialized again: {@code @PostConstruct} methods, init
+ * methods, aware callbacks and bean post-processors do not run on restore.
+ * A bean failing to be restored is replaced by a new instance.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class PassivatingBeanStore extends BeanStore {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(PassivatingBeanStore.class.getName());
+
+    private transient volatile UIScopePassivation passivation;
+
+    private transient volatile long lastAccess = System.currentTimeMillis();
+
+    /**
+     * Incremented on every read, only compared to detect reads during
+     * passivation, so lost concurrent increments do not matter.
+     */
+    private transient volatile int accesses;
+
+    private transient Map<String, String> passivatedKeys = new HashMap<>();
+
+    private transient Map<String, byte[]> passivatedData = new HashMap<>();
+
+    private transient Set<String> notPassivated = new HashSet<>();
+
+    /**
+     * Creates a new instance for the given {@code session}.
+     *
+     * @param session
+     *            a vaadin session
+     */
+    PassivatingBeanStore(VaadinSession session) {
+        super(session);
+    }
+
+    @Override
+    Object get(String name, ObjectFactory<?> objectFactory) {
+        lastAccess = System.currentTimeMillis();
+        accesses++;
+        return super.get(name, objectFactory);
+    }
+
+    @Override
+    Object doGet(String name, ObjectFactory<?> objectFactory) {
+        Object bean = objects.get(name);
+        if (bean == null) {
+            bean = restore(name);
+            if (bean != null) {
+                objects.put(name, bean);
+                return bean;
+            }
+        }
+        return super.doGet(name, objectFactory);
+    }
+
+    @Override
+    Object doRemove(String name) {
+        discard(name);
+        return super.doRemove(name);
+    }
+
+    @Override
+    Void doDestroy() {
+        new HashSet<>(passivatedKeys.keySet()).forEach(this::discard);
+        passivatedData.clear();
+        return super.doDestroy();
+    }
+
+    /**
+     * Sets the passivation handling this store.
+     *
+     * @param passivation
+     *            the passivation
+     */
+    void setPassivation(UIScopePassivation passivation) {
+        this.passivation = passivation;
+    }
+
+    /**
+     * Checks whether the store has not been accessed for the passivation
+     * timeout.
+     *
+     * @param now
+     *            the current time in milliseconds
+     * @return {@code true} if the beans of the store should be passivated
+     */
+    boolean isIdle(long now) {
+        UIScopePassivation current = passivation;
+        return current != null && !isDestroyed()
+                && now - lastAccess >= current.getTimeout();
+    }
+
+    /**
+     * Passivates the beans of the store unless the session is locked, i.e. in
+     * use.
+     */
+    void passivateIfUnlocked() {
+        VaadinSession session = getVaadinSession();
+        Lock lock = session.getLockInstance();
+        if (lock != null && lock.tryLock()) {
+            try {
+                passivate();
+            } finally {
+                session.unlock();
+            }
+        }
+    }
+
+    /**
+     * Passivates the beans of the store that can be passivated, unless a bean
+     * is read meanwhile.
+     */
+    void passivate() {
+        assert getVaadinSession().hasLock();
+        if (passivation == null || isDestroyed()) {
+            return;
+        }
+        int accessesBefore = accesses;
+        Map<String, Object> passivated = new HashMap<>();
+        Map<String, String> keys = new HashMap<>();
+        for (Map.Entry<String, Object> entry : objects.entrySet()) {
+            String name = entry.getKey();
+            if (!ScopedProxyUtils.isScopedTarget(name)
+                    || destructionCallbacks.containsKey(name)
+                    || !(entry.getValue() instanceof Serializable)
+                    || notPassivated.contains(name)) {
+                continue;
+            }
+            try {
+                keys.put(name, passivation.write(entry.getValue()));
+                passivated.put(name, entry.getValue());
+            } catch (IOException e) {
+                notPassivated.add(name);
+                LOGGER.debug("UI scoped bean '{}' cannot be passivated", name,
+                        e);
+            }
+        }
+        passivated.keySet().forEach(objects::remove);
+        // A reader counted after the beans have been removed finds none of
+        // them and waits for the session lock to restore them
+        if (accesses != accessesBefore) {
+            passivated.forEach(objects::put);
+            keys.values().forEach(passivation::remove);
+            return;
+        }
+        passivatedKeys.putAll(keys);
+    }
+
+    /**
+     * Gets the names of the passivated beans.
+     *
+     * @return the bean names
+     */
+    Set<String> getPassivatedNames() {
+        Set<String> names = new HashSet<>(passivatedKeys.keySet());
+        names.addAll(passivatedData.keySet());
+        return names;
+    }
+
+    private Object restore(String name) {
+        byte[] data = passivatedData.remove(name);
+        String key = passivatedKeys.remove(name);
+        if (key != null) {
+            data = passivation.read(key);
+            passivation.remove(key);
+        }
+        if (data == null) {
+            return null;
+        }
+        try {
+            Object bean = UIScopePassivation.deserialize(data);
+            UIScopePassivation current = passivation;
+            return current == null ? bean : current.autowire(bean);
+        } catch (IOException | ClassNotFoundException | BeansException e) {
+            LOGGER.warn("Unable to restore the passivated UI scoped bean '{}',"
+                    + " a new instance is created", name, e);
+            return null;
+        }
+    }
+
+    private void discard(String name) {
+        passivatedData.remove(name);
+        String key = passivatedKeys.remove(name);
+        if (key != null) {
+            passivation.remove(key);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        Map<String, byte[]> data = new HashMap<>(passivatedData);
+        passivatedKeys.forEach((name, key) -> {
+            byte[] bytes = passivation.read(key);
+            if (bytes != null) {
+                data.put(name, bytes);
+            }
+        });
+        out.writeObject(data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lastAccess = System.currentTimeMillis();
+        passivatedKeys = new HashMap<>();
+        passivatedData = (Map<String, byte[]>) in.readObject();
+        notPassivated = new HashSet<>();
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import javax.servlet.ServletContext;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.BeanFactory;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.internal.UIInternals;
+import com.vaadin.flow.internal.StateTree;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Approximates the heap retained by an object by walking the objects
+ * reachable from it and summing their shallow sizes.
+ * <p>
+ * Shallow sizes assume a 64-bit JVM with compressed references. Large arrays,
+ * collections and maps are sampled and their sampled elements extrapolated to
+ * the full size, and a walk stops after a maximum number of objects. Objects
+ * shared by the whole application or session, such as classes, Spring bean
+ * factories, the session and the UI, are never walked, and neither are the
+ * shared objects given to an estimate, typically the singleton beans. JDK
+ * classes that cannot be reflected on only count their shallow size, apart
+ * from strings and the {@code java.util} collections and maps, which are
+ * measured through their public API. Other collections and maps are walked by
+ * their fields, since their API may have side effects, such as loading a lazy
+ * JPA collection.
+ * <p>
+ * The objects are read without any locking, so the result is an estimate even
+ * for the objects it has walked.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class RetainedSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAP_ENTRY = 32;
+    private static final int STRING = 24;
+
+    private static final List<Class<?>> BOUNDARIES = Arrays.asList(Class.class,
+            ClassLoader.class, Thread.class, Enum.class, BeanFactory.class,
+            ServletContext.class, VaadinService.class, VaadinSession.class,
+            UI.class, UIInternals.class, StateTree.class, BeanStore.class);
+
+    private final int sampleSize;
+
+    private final int maxObjects;
+
+    private final Map<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<>();
+
+    private static final class ClassLayout {
+        private final long shallowSize;
+        private final List<Field> references;
+
+        private ClassLayout(long shallowSize, List<Field> references) {
+            this.shallowSize = shallowSize;
+            this.references = references;
+        }
+    }
+
+    private static final class Pending {
+        private final Object object;
+        private final double weight;
+
+        private Pending(Object object, double weight) {
+            this.object = object;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Creates a new estimator.
+     *
+     * @param sampleSize
+     *            the number of elements walked in an array, collection or map
+     * @param maxObjects
+     *            the maximum number of objects walked per estimate
+     */
+    RetainedSizeEstimator(int sampleSize, int maxObjects) {
+        this.sampleSize = sampleSize;
+        this.maxObjects = maxObjects;
+    }
+
+    /**
+     * Estimates the heap retained by an object.
+     *
+     * @param root
+     *            the object to measure
+     * @param visited
+     *            the objects already measured, which are not counted again;
+     *            the objects walked are added to it
+     * @return the approximate retained size in bytes
+     */
+    long estimate(Object root, Set<Object> visited) {
+        return estimate(root, visited, Collections.emptySet());
+    }
+
+    /**
+     * Estimates the heap retained by an object, without walking the given
+     * shared objects.
+     *
+     * @param root
+     *            the object to measure
+     * @param visited
+     *            the objects already measured, which are not counted again;
+     *            the objects walked are added to it
+     * @param shared
+     *            the objects retained by the application rather than by the
+     *            measured object, such as the singleton beans, compared by
+     *            identity
+     * @return the approximate retained size in bytes
+     */
+    long estimate(Object root, Set<Object> visited, Set<Object> shared) {
+        Deque<Pending> pending = new ArrayDeque<>();
+        push(pending, root, 1);
+        double size = 0;
+        int walked = 0;
+        while (!pending.isEmpty() && walked < maxObjects) {
+            Pending next = pending.pop();
+            if (!shared.contains(next.object) && visited.add(next.object)) {
+                walked++;
+                size += next.weight * visit(next.object, next.weight, pending);
+            }
+        }
+        return Math.round(size);
+    }
+
+    private long visit(Object object, double weight, Deque<Pending> pending) {
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            return visitArray(object, weight, pending);
+        } else if (object instanceof String) {
+            return align(STRING)
+                    + align(ARRAY_HEADER + ((String) object).length());
+        } else if (object instanceof Collection && isJdkType(type)) {
+            Collection<?> collection = (Collection<?>) object;
+            int size = collection.size();
+            pushSample(pending, collection.iterator(), size, weight);
+            return getLayout(type).shallowSize
+                    + align(ARRAY_HEADER + (long) size * REFERENCE);
+        } else if (object instanceof Map && isJdkType(type)) {
+            Map<?, ?> map = (Map<?, ?>) object;
+            int size = map.size();
+            pushSample(pending, new EntryIterator(map), 2 * size, weight);
+            return getLayout(type).shallowSize
+                    + align(ARRAY_HEADER + (long) size * REFERENCE)
+                    + (long) size * MAP_ENTRY;
+        }
+        ClassLayout layout = getLayout(type);
+        for (Field field : layout.references) {
+            try {
+                push(pending, field.get(object), weight);
+            } catch (IllegalAccessException e) {
+                // Accessibility has been checked when computing the layout
+            }
+        }
+        return layout.shallowSize;
+    }
+
+    private long visitArray(Object array, double weight,
+            Deque<Pending> pending) {
+        Class<?> componentType = array.getClass().getComponentType();
+        int length = Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            return align(
+                    ARRAY_HEADER + (long) length * sizeOf(componentType));
+        }
+        Object[] elements = (Object[]) array;
+        int step = Math.max(1, length / sampleSize);
+        int sampled = (length + step - 1) / step;
+        for (int i = 0; i < length; i += step) {
+            push(pending, elements[i], weight * length / sampled);
+        }
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    private void pushSample(Deque<Pending> pending, Iterator<?> elements,
+            int size, double weight) {
+        int sampled = Math.min(size, sampleSize);
+        double elementWeight = sampled == 0 ? weight : weight * size / sampled;
+        try {
+            for (int i = 0; i < sampled && elements.hasNext(); i++) {
+                push(pending, elements.next(), elementWeight);
+            }
+        } catch (RuntimeException e) {
+            // Concurrently modified, the elements read so far are enough
+        }
+    }
+
+    private void push(Deque<Pending> pending, Object object, double weight) {
+        if (object != null && !isBoundary(object)) {
+            pending.push(new Pending(object, weight));
+        }
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+        return type.getName().startsWith("java.util.");
+    }
+
+    private static boolean isBoundary(Object object) {
+        for (Class<?> boundary : BOUNDARIES) {
+            if (boundary.isInstance(object)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ClassLayout getLayout(Class<?> type) {
+        return layouts.computeIfAbsent(type,
+                RetainedSizeEstimator::computeLayout);
+    }
+
+    private static ClassLayout computeLayout(Class<?> type) {
+        long size = OBJECT_HEADER;
+        List<Field> references = new ArrayList<>();
+        for (Class<?> current = type; current != null; current = current
+                .getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> fieldType = field.getType();
+                if (fieldType.isPrimitive()) {
+                    size += sizeOf(fieldType);
+                } else {
+                    size += REFERENCE;
+                    if (isAccessible(field)) {
+                        references.add(field);
+                    }
+                }
+            }
+        }
+        return new ClassLayout(align(size), references);
+    }
+
+    private static boolean isAccessible(Field field) {
+        try {
+            field.setAccessible(true);
+            return true;
+        } catch (RuntimeException e) {
+            // Not opened to reflection, typically JDK internals
+            return false;
+        }
+    }
+
+    private static int sizeOf(Class<?> primitive) {
+        if (primitive == long.class || primitive == double.class) {
+            return 8;
+        } else if (primitive == int.class || primitive == float.class) {
+            return 4;
+        } else if (primitive == short.class || primitive == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Iterates the keys and values of a map, alternately.
+     */
+    private static class EntryIterator implements Iterator<Object> {
+
+        private final Iterator<? extends Map.Entry<?, ?>> entries;
+
+        private Object value;
+
+        private boolean hasValue;
+
+        private EntryIterator(Map<?, ?> map) {
+            entries = map.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasValue || entries.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (hasValue) {
+                hasValue = false;
+                return value;
+            }
+            Map.Entry<?, ?> entry = entries.next();
+            value = entry.getValue();
+            hasValue = true;
+            return entry.getKey();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import com.vaadin.flow.component.ComponentEventListener;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.spring.SpringVaadinSession;
+
+/**
+ * The bean stores of the session and UI scopes of a session, kept as a single
+ * session attribute.
+ * <p>
+ * The stores are created when first used. They are all destroyed along with
+ * the session through a single destroy listener, and the store of a UI is
+ * destroyed when the UI is detached.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class SessionScopeStorage implements ComponentEventListener<DetachEvent> {
+
+    private final VaadinSession session;
+
+    private final Registration sessionDestroyListenerRegistration;
+
+    private volatile EvictingBeanStore sessionBeanStore;
+
+    private final CopyOnWriteIntMap<BeanStore> uiStores = new CopyOnWriteIntMap<>();
+
+    private volatile boolean destroyed;
+
+    private SessionScopeStorage(VaadinSession session) {
+        assert session.hasLock();
+        this.session = session;
+        if (session instanceof SpringVaadinSession) {
+            sessionDestroyListenerRegistration = null;
+            ((SpringVaadinSession) session)
+                    .addDestroyListener(event -> destroy());
+        } else {
+            sessionDestroyListenerRegistration = session.getService()
+                    .addSessionDestroyListener(event -> destroy());
+        }
+    }
+
+    /**
+     * Gets the storage of a session, creating it if needed.
+     *
+     * @param session
+     *            the session, locked
+     * @return the storage of the session
+     */
+    static SessionScopeStorage get(VaadinSession session) {
+        assert session.hasLock();
+        SessionScopeStorage storage = session
+                .getAttribute(SessionScopeStorage.class);
+        if (storage == null) {
+            storage = new SessionScopeStorage(session);
+            session.setAttribute(SessionScopeStorage.class, storage);
+        }
+        return storage;
+    }
+
+    /**
+     * Checks whether the session of the storage has been destroyed.
+     *
+     * @return {@code true} if the storage has been destroyed
+     */
+    boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Gets the bean store of the session scope if it exists, without locking
+     * the session.
+     *
+     * @return the bean store or {@code null}
+     */
+    EvictingBeanStore findSessionBeanStore() {
+        return sessionBeanStore;
+    }
+
+    /**
+     * Gets the bean store of the session scope, creating it if needed.
+     *
+     * @return the bean store
+     */
+    EvictingBeanStore getSessionBeanStore() {
+        assert session.hasLock();
+        EvictingBeanStore beanStore = sessionBeanStore;
+        if (beanStore == null || beanStore.isDestroyed()) {
+            beanStore = new EvictingBeanStore(session);
+            sessionBeanStore = beanStore;
+        }
+        return beanStore;
+    }
+
+    /**
+     * Gets the bean store of a UI if it exists, without locking the session.
+     *
+     * @param ui
+     *            the UI
+     * @return the bean store or {@code null}
+     */
+    BeanStore findUIBeanStore(UI ui) {
+        return uiStores.get(ui.getUIId());
+    }
+
+    /**
+     * Gets the bean store of a UI, creating it if needed.
+     *
+     * @param ui
+     *            the UI
+     * @param passivating
+     *            whether a new store passivates its beans once idle
+     * @return the bean store
+     */
+    BeanStore getUIBeanStore(UI ui, boolean passivating) {
+        assert session.hasLock();
+        BeanStore beanStore = uiStores.get(ui.getUIId());
+        if (beanStore == null) {
+            beanStore = passivating ? new PassivatingBeanStore(session)
+                    : new BeanStore(session);
+            uiStores.put(ui.getUIId(), beanStore);
+            ui.addDetachListener(this);
+        }
+        return beanStore;
+    }
+
+    @Override
+    public void onComponentEvent(DetachEvent event) {
+        assert session.hasLock();
+        UI ui = event.getUI();
+        BeanStore beanStore = uiStores.remove(ui.getUIId());
+        if (beanStore != null) {
+            beanStore.destroy();
+        }
+    }
+
+    private void destroy() {
+        destroyed = true;
+        session.lock();
+        try {
+            session.setAttribute(SessionScopeStorage.class, null);
+            uiStores.values().forEach(BeanStore::destroy);
+            uiStores.clear();
+            BeanStore beanStore = sessionBeanStore;
+            sessionBeanStore = null;
+            if (beanStore != null) {
+                beanStore.destroy();
+            }
+        } finally {
+            session.unlock();
+            if (sessionDestroyListenerRegistration != null) {
+                sessionDestroyListenerRegistration.remove();
+            }
+        }
+    }
+}
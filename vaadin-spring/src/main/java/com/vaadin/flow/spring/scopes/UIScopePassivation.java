@@ -0,0 +1,309 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.internal.StateNode;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Passivation of the idle UI scoped beans.
+ * <p>
+ * Keeps track of the {@link PassivatingBeanStore}s of the UI scope and
+ * periodically, from a daemon thread, passivates the beans of the stores which
+ * have not been accessed for the configured timeout. The beans are serialized
+ * and compressed into a {@link BeanPassivationStore}. A bean reaching a
+ * component, a state node or a session is not passivated since its copy would
+ * not be attached to the actual UI.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+class UIScopePassivation {
+
+    private final long timeoutMillis;
+
+    private final Supplier<BeanPassivationStore> storeSupplier;
+
+    private final AutowireCapableBeanFactory beanFactory;
+
+    private volatile BeanPassivationStore store;
+
+    private final Map<PassivatingBeanStore, Boolean> beanStores = new ConcurrentReferenceHashMap<>(
+            16, ReferenceType.WEAK);
+
+    private ScheduledExecutorService executor;
+
+    private boolean stopped;
+
+    /**
+     * In memory store, the default when the application does not provide its
+     * own.
+     */
+    private static class InMemoryStore implements BeanPassivationStore {
+
+        private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+
+        @Override
+        public void write(String key, byte[] bytes) {
+            data.put(key, bytes);
+        }
+
+        @Override
+        public byte[] read(String key) {
+            return data.get(key);
+        }
+
+        @Override
+        public void remove(String key) {
+            data.remove(key);
+        }
+    }
+
+    /**
+     * Object stream refusing the objects bound to a UI or a session.
+     */
+    private static class BeanOutputStream extends ObjectOutputStream {
+
+        private BeanOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj instanceof Component || obj instanceof StateNode
+                    || obj instanceof VaadinSession) {
+                throw new NotSerializableException(
+                        obj.getClass().getName() + " is bound to the session");
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Creates a new passivation.
+     *
+     * @param timeoutMillis
+     *            the time in milliseconds after which the beans of a store not
+     *            accessed are passivated
+     * @param storeSupplier
+     *            supplies the store for the passivated beans, the beans are
+     *            kept in memory if it is {@code null} or supplies
+     *            {@code null}
+     * @param beanFactory
+     *            the bean factory to autowire the restored beans with, or
+     *            {@code null} to restore them as deserialized
+     */
+    UIScopePassivation(long timeoutMillis,
+            Supplier<BeanPassivationStore> storeSupplier,
+            AutowireCapableBeanFactory beanFactory) {
+        this.timeoutMillis = timeoutMillis;
+        this.storeSupplier = storeSupplier;
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * Starts passivating the beans of a store once idle, if it supports it.
+     * Registering a store again has no effect.
+     *
+     * @param beanStore
+     *            the bean store
+     */
+    void register(BeanStore beanStore) {
+        if (beanStore instanceof PassivatingBeanStore) {
+            PassivatingBeanStore passivatingStore = (PassivatingBeanStore) beanStore;
+            passivatingStore.setPassivation(this);
+            beanStores.putIfAbsent(passivatingStore, Boolean.TRUE);
+            startIfNeeded();
+        }
+    }
+
+    /**
+     * Passivates the beans of the registered stores idle at the given time.
+     *
+     * @param now
+     *            the current time in milliseconds
+     */
+    void passivateIdleStores(long now) {
+        for (PassivatingBeanStore beanStore : beanStores.keySet()) {
+            if (beanStore.isDestroyed()) {
+                beanStores.remove(beanStore);
+            } else if (beanStore.isIdle(now)) {
+                try {
+                    beanStore.passivateIfUnlocked();
+                } catch (RuntimeException e) {
+                    getLogger().warn("Unable to passivate UI scoped beans", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the passivation thread.
+     */
+    synchronized void shutdown() {
+        stopped = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Gets the time after which the beans of a store not accessed are
+     * passivated.
+     *
+     * @return the timeout in milliseconds
+     */
+    long getTimeout() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Serializes a bean and writes it to the store.
+     *
+     * @param bean
+     *            the bean
+     * @return the key of the data in the store
+     * @throws IOException
+     *             if the bean cannot be serialized
+     */
+    String write(Object bean) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new BeanOutputStream(
+                new DeflaterOutputStream(bytes))) {
+            out.writeObject(bean);
+        }
+        String key = UUID.randomUUID().toString();
+        getStore().write(key, bytes.toByteArray());
+        return key;
+    }
+
+    /**
+     * Reads the data of a bean from the store.
+     *
+     * @param key
+     *            the key of the data
+     * @return the data or {@code null} if not available
+     */
+    byte[] read(String key) {
+        return getStore().read(key);
+    }
+
+    /**
+     * Removes the data of a bean from the store.
+     *
+     * @param key
+     *            the key of the data
+     */
+    void remove(String key) {
+        getStore().remove(key);
+    }
+
+    /**
+     * Deserializes a bean written by {@link #write(Object)}.
+     *
+     * @param data
+     *            the data of the bean
+     * @return the bean
+     * @throws IOException
+     *             if the data cannot be read
+     * @throws ClassNotFoundException
+     *             if the class of the bean is not available
+     */
+    static Object deserialize(byte[] data)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ConfigurableObjectInputStream(
+                new InflaterInputStream(new ByteArrayInputStream(data)),
+                ClassUtils.getDefaultClassLoader())) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Autowires a deserialized bean, so that its transient injected fields
+     * are set again. The bean is not initialized again.
+     *
+     * @param bean
+     *            the deserialized bean
+     * @return the bean
+     */
+    Object autowire(Object bean) {
+        if (beanFactory != null) {
+            beanFactory.autowireBean(bean);
+        }
+        return bean;
+    }
+
+    private BeanPassivationStore getStore() {
+        if (store == null) {
+            synchronized (this) {
+                if (store == null) {
+                    BeanPassivationStore supplied = storeSupplier == null
+                            ? null
+                            : storeSupplier.get();
+                    store = supplied == null ? new InMemoryStore() : supplied;
+                }
+            }
+        }
+        return store;
+    }
+
+    private synchronized void startIfNeeded() {
+        if (executor != null || stopped) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "vaadin-ui-scope-passivation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(timeoutMillis / 2, 1000);
+        executor.scheduleAtFixedRate(
+                () -> passivateIdleStores(System.currentTimeMillis()), period,
+                period, TimeUnit.MILLISECONDS);
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(UIScopePassivation.class);
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+
+import com.vaadin.flow.component.ComponentEventListener;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.HasElement;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.router.AfterNavigationEvent;
+import com.vaadin.flow.router.AfterNavigationListener;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterListener;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.spring.annotation.RouteScopeOwner;
+
+/**
+ * Implementation of Spring's
+ * {@link org.springframework.beans.factory.config.Scope} that binds the beans
+ * to a route target or router layout of the current {@link UI}. Registered by
+ * default as the scope "{@value #VAADIN_ROUTE_SCOPE_NAME}".
+ * <p>
+ * A bean is owned by the navigation target being entered when it is created,
+ * or by the current navigation target outside of a navigation, unless the
+ * bean is annotated with {@link RouteScopeOwner}. The beans of an owner are
+ * destroyed after a navigation whose chain does not contain the owner anymore,
+ * and when the UI is detached.
+ *
+ * @see com.vaadin.flow.spring.annotation.RouteScope
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public class VaadinRouteScope extends AbstractScope {
+
+    public static final String VAADIN_ROUTE_SCOPE_NAME = "vaadin-route";
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    /**
+     * Owners by bean name, {@code HasElement} itself for the beans without an
+     * explicit owner.
+     */
+    private final Map<String, Class<?>> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Route stores by UI, read without locking the session. The UI data
+     * remains the actual storage: entries are weakly referenced and looked up
+     * again from the UI once collected.
+     */
+    private final Map<UI, RouteStores> routeStores = new ConcurrentReferenceHashMap<>(
+            16, ReferenceType.WEAK);
+
+    /**
+     * The route bean stores of a UI, stored as UI data.
+     */
+    static class RouteStores implements BeforeEnterListener,
+            AfterNavigationListener, ComponentEventListener<DetachEvent>,
+            Serializable {
+
+        private final UI ui;
+
+        private final Map<Class<?>, BeanStore> stores = new HashMap<>();
+
+        private final List<Registration> registrations = new ArrayList<>();
+
+        private List<Class<?>> enteringChain;
+
+        /**
+         * The stores of the current navigation target and its layouts, read
+         * without locking the session. Cleared while navigating and updated
+         * holding the lock.
+         */
+        private transient volatile ActiveStores activeStores;
+
+        private RouteStores(UI ui) {
+            this.ui = ui;
+            registrations.add(ui.addBeforeEnterListener(this));
+            registrations.add(ui.addAfterNavigationListener(this));
+            registrations.add(ui.addDetachListener(this));
+        }
+
+        @Override
+        public void beforeEnter(BeforeEnterEvent event) {
+            List<Class<?>> chain = new ArrayList<>();
+            chain.add(event.getNavigationTarget());
+            chain.addAll(event.getLayouts());
+            enter(chain);
+        }
+
+        @Override
+        public void afterNavigation(AfterNavigationEvent event) {
+            navigated(event.getActiveChain().stream().map(Object::getClass)
+                    .collect(Collectors.toList()));
+        }
+
+        @Override
+        public void onComponentEvent(DetachEvent event) {
+            registrations.forEach(Registration::remove);
+            ComponentUtil.setData(ui, RouteStores.class, null);
+            activeStores = null;
+            stores.values().forEach(BeanStore::destroy);
+            stores.clear();
+        }
+
+        /**
+         * Sets the chain being navigated to, which owns the beans created
+         * until the navigation is done.
+         *
+         * @param chain
+         *            the navigation target and its layouts
+         */
+        void enter(List<Class<?>> chain) {
+            enteringChain = chain;
+            activeStores = null;
+        }
+
+        /**
+         * Destroys the beans of the owners not in the chain navigated to.
+         *
+         * @param chain
+         *            the navigation target and its layouts
+         */
+        void navigated(List<Class<?>> chain) {
+            enteringChain = null;
+            activeStores = null;
+            Iterator<Map.Entry<Class<?>, BeanStore>> iterator = stores
+                    .entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Class<?>, BeanStore> entry = iterator.next();
+                if (!chain.contains(entry.getKey())) {
+                    iterator.remove();
+                    entry.getValue().destroy();
+                }
+            }
+        }
+
+        private BeanStore getBeanStore(Class<?> owner,
+                Function<Class<?>, BeanStore> storeFactory) {
+            List<Class<?>> chain = getChain();
+            if (chain.isEmpty()) {
+                throw new IllegalStateException(
+                        "There is no navigation target. The route scope is not active");
+            }
+            Class<?> actualOwner = owner == HasElement.class ? chain.get(0)
+                    : owner;
+            if (!chain.contains(actualOwner)) {
+                throw new IllegalStateException(String.format(
+                        "Route owner '%s' is not in the navigation chain of the UI."
+                                + " The route scope owned by it is not active",
+                        actualOwner.getName()));
+            }
+            BeanStore beanStore = stores.computeIfAbsent(actualOwner,
+                    storeFactory);
+            if (enteringChain == null) {
+                activeStores = new ActiveStores(chain.get(0),
+                        new HashMap<>(stores));
+            }
+            return beanStore;
+        }
+
+        /**
+         * Gets the bean store of an owner if it exists outside of a
+         * navigation, without locking the session.
+         *
+         * @param owner
+         *            the owner, {@code HasElement} for the navigation target
+         * @return the bean store or {@code null}
+         */
+        private BeanStore findBeanStore(Class<?> owner) {
+            ActiveStores active = activeStores;
+            if (active == null) {
+                return null;
+            }
+            BeanStore beanStore = active.stores
+                    .get(owner == HasElement.class ? active.target : owner);
+            return beanStore == null || beanStore.isDestroyed() ? null
+                    : beanStore;
+        }
+
+        private List<Class<?>> getChain() {
+            if (enteringChain != null) {
+                return enteringChain;
+            }
+            return ui.getInternals().getActiveRouterTargetsChain().stream()
+                    .map(Object::getClass).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Immutable snapshot of the stores of an active navigation chain.
+     */
+    private static class ActiveStores implements Serializable {
+
+        private final Class<?> target;
+
+        private final Map<Class<?>, BeanStore> stores;
+
+        private ActiveStores(Class<?> target,
+                Map<Class<?>, BeanStore> stores) {
+            this.target = target;
+            this.stores = stores;
+        }
+    }
+
+    @Override
+    public void postProcessBeanFactory(
+            ConfigurableListableBeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+        beanFactory.registerScope(VAADIN_ROUTE_SCOPE_NAME, this);
+        initFootprint(beanFactory);
+        initMetrics(beanFactory, VAADIN_ROUTE_SCOPE_NAME);
+        initAsyncDestruction(beanFactory, VAADIN_ROUTE_SCOPE_NAME);
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        return getBeanStore(name).get(name, objectFactory);
+    }
+
+    @Override
+    public Object remove(String name) {
+        return getBeanStore(name).remove(name);
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        getBeanStore(name).registerDestructionCallback(name, callback);
+    }
+
+    @Override
+    public String getConversationId() {
+        return getVaadinSession().getSession().getId() + "-UI:"
+                + getUI().getUIId() + "-route";
+    }
+
+    @Override
+    protected BeanStore getBeanStore() {
+        return getBeanStore(HasElement.class);
+    }
+
+    /**
+     * Gets the route stores of a UI, creating them if needed.
+     *
+     * @param ui
+     *            the UI
+     * @return the route stores
+     */
+    static RouteStores getRouteStores(UI ui) {
+        RouteStores routeStores = ComponentUtil.getData(ui, RouteStores.class);
+        if (routeStores == null) {
+            routeStores = new RouteStores(ui);
+            ComponentUtil.setData(ui, RouteStores.class, routeStores);
+        }
+        return routeStores;
+    }
+
+    private BeanStore getBeanStore(String name) {
+        return getBeanStore(owners.computeIfAbsent(name, this::findOwner));
+    }
+
+    private BeanStore getBeanStore(Class<?> owner) {
+        VaadinSession session = getVaadinSession();
+        UI ui = getUI();
+        RouteStores stores = routeStores.get(ui);
+        BeanStore beanStore = stores == null ? null
+                : stores.findBeanStore(owner);
+        if (beanStore != null) {
+            return beanStore;
+        }
+        session.lock();
+        try {
+            stores = getRouteStores(ui);
+            routeStores.put(ui, stores);
+            return stores.getBeanStore(owner, key -> {
+                BeanStore created = new BeanStore(session);
+                trackBeanStore(VAADIN_ROUTE_SCOPE_NAME, created,
+                        ui.getUIId());
+                return created;
+            });
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private Class<?> findOwner(String name) {
+        RouteScopeOwner owner = beanFactory == null
+                || !beanFactory.containsBean(name) ? null
+                        : beanFactory.findAnnotationOnBean(name,
+                                RouteScopeOwner.class);
+        return owner == null ? HasElement.class : owner.value();
+    }
+
+    private UI getUI() {
+        UI ui = UI.getCurrent();
+        if (ui == null) {
+            throw new IllegalStateException(
+                    "There is no UI available. The route scope is not active");
+        }
+        return ui;
+    }
+}
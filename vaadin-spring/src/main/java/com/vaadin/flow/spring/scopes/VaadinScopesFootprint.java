@@ -0,0 +1,380 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedSession;
+
+/**
+ * Reports the beans held by the Vaadin session and UI scopes of this node and
+ * the approximate heap they retain.
+ * <p>
+ * Registered as the {@value #BEAN_NAME} bean when the
+ * {@code vaadin.scope-footprint} property is enabled. The bean counts are
+ * cheap to compute, the sizes are computed on demand by walking the objects
+ * reachable from every scoped bean, sampling large arrays, collections and
+ * maps. Objects shared by several beans of the same store are only counted
+ * once, for the first bean reaching them. The singleton beans, such as the
+ * services injected into the scoped beans, are not retained by the stores and
+ * are never walked. A bean that fails to be walked is reported with a size of
+ * zero. The beans are read without locking their sessions, so all the figures
+ * are approximate.
+ * <p>
+ * The methods return plain values and maps so that they can be exposed as is
+ * through a management endpoint.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public class VaadinScopesFootprint {
+
+    /**
+     * The name of the bean registered by the Vaadin scopes.
+     */
+    public static final String BEAN_NAME = "vaadinScopesFootprint";
+
+    private static final int SAMPLE_SIZE = 32;
+
+    private static final int MAX_OBJECTS = 10000;
+
+    private final Map<BeanStore, TrackedStore> stores = new ConcurrentReferenceHashMap<>(
+            16, ReferenceType.WEAK);
+
+    private final SingletonBeanRegistry singletonRegistry;
+
+    private final RetainedSizeEstimator estimator;
+
+    private static final class TrackedStore {
+        private final String scope;
+        private final int uiId;
+
+        private TrackedStore(String scope, int uiId) {
+            this.scope = scope;
+            this.uiId = uiId;
+        }
+    }
+
+    /**
+     * The beans of a bean store, i.e. of a session or of a UI.
+     */
+    public static final class StoreFootprint {
+
+        private final String scope;
+        private final String sessionId;
+        private final int uiId;
+        private final Map<String, Long> beanSizes;
+
+        private StoreFootprint(String scope, String sessionId, int uiId,
+                Map<String, Long> beanSizes) {
+            this.scope = scope;
+            this.sessionId = sessionId;
+            this.uiId = uiId;
+            this.beanSizes = Collections.unmodifiableMap(beanSizes);
+        }
+
+        /**
+         * Gets the name of the scope of the store.
+         *
+         * @return the scope name
+         */
+        public String getScope() {
+            return scope;
+        }
+
+        /**
+         * Gets the id of the HTTP session the store belongs to.
+         *
+         * @return the session id
+         */
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        /**
+         * Gets the id of the UI the store belongs to.
+         *
+         * @return the UI id, or {@code -1} for the session scope
+         */
+        public int getUIId() {
+            return uiId;
+        }
+
+        /**
+         * Gets the number of beans in the store.
+         *
+         * @return the bean count
+         */
+        public int getBeanCount() {
+            return beanSizes.size();
+        }
+
+        /**
+         * Gets the approximate heap retained by the beans of the store.
+         *
+         * @return the retained size in bytes
+         */
+        public long getRetainedSize() {
+            return beanSizes.values().stream().mapToLong(Long::longValue)
+                    .sum();
+        }
+
+        /**
+         * Gets the approximate heap retained by each bean of the store.
+         *
+         * @return the retained sizes in bytes by bean name
+         */
+        public Map<String, Long> getBeanSizes() {
+            return beanSizes;
+        }
+    }
+
+    /**
+     * The instances of a bean in all the stores.
+     */
+    public static final class BeanFootprint {
+
+        private final String beanName;
+        private int instances;
+        private long retainedSize;
+
+        private BeanFootprint(String beanName) {
+            this.beanName = beanName;
+        }
+
+        /**
+         * Gets the bean name.
+         *
+         * @return the bean name
+         */
+        public String getBeanName() {
+            return beanName;
+        }
+
+        /**
+         * Gets the number of instances of the bean, i.e. the number of stores
+         * holding it.
+         *
+         * @return the instance count
+         */
+        public int getInstances() {
+            return instances;
+        }
+
+        /**
+         * Gets the approximate heap retained by all the instances of the bean.
+         *
+         * @return the retained size in bytes
+         */
+        public long getRetainedSize() {
+            return retainedSize;
+        }
+    }
+
+    /**
+     * Creates a new footprint report.
+     *
+     * @param singletonRegistry
+     *            the registry of the singleton beans, which are not walked
+     */
+    VaadinScopesFootprint(SingletonBeanRegistry singletonRegistry) {
+        this(singletonRegistry,
+                new RetainedSizeEstimator(SAMPLE_SIZE, MAX_OBJECTS));
+    }
+
+    /**
+     * Creates a new footprint report using the given estimator.
+     *
+     * @param singletonRegistry
+     *            the registry of the singleton beans, which are not walked,
+     *            or {@code null}
+     * @param estimator
+     *            the retained size estimator
+     */
+    VaadinScopesFootprint(SingletonBeanRegistry singletonRegistry,
+            RetainedSizeEstimator estimator) {
+        this.singletonRegistry = singletonRegistry;
+        this.estimator = estimator;
+    }
+
+    /**
+     * Starts tracking a bean store. Tracking a store again has no effect.
+     *
+     * @param scope
+     *            the scope name
+     * @param beanStore
+     *            the bean store, weakly referenced
+     * @param uiId
+     *            the id of the UI of the store, or {@code -1} for the session
+     *            scope
+     */
+    void track(String scope, BeanStore beanStore, int uiId) {
+        stores.computeIfAbsent(beanStore,
+                store -> new TrackedStore(scope, uiId));
+    }
+
+    /**
+     * Gets the number of beans in each scope.
+     *
+     * @return the bean counts by scope name
+     */
+    public Map<String, Integer> getBeanCountByScope() {
+        Map<String, Integer> counts = new TreeMap<>();
+        forEachStore((store, tracked) -> counts.merge(tracked.scope,
+                store.getObjects().size(), Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Gets the number of beans in each session, in the session scope and in
+     * the UI scope of all the UIs of the session.
+     *
+     * @return the bean counts by session id
+     */
+    public Map<String, Integer> getBeanCountBySession() {
+        Map<String, Integer> counts = new TreeMap<>();
+        forEachStore((store, tracked) -> counts.merge(
+                getSessionId(store.getVaadinSession()),
+                store.getObjects().size(), Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Gets the beans and their approximate retained size of every store, i.e.
+     * the session scope of every session and the UI scope of every UI.
+     * <p>
+     * This walks all the scoped beans of the node and should only be called
+     * on demand.
+     *
+     * @return the footprints of the stores, the heaviest first
+     */
+    public List<StoreFootprint> getStoreFootprints() {
+        List<StoreFootprint> footprints = new ArrayList<>();
+        Set<Object> singletons = getSingletons();
+        forEachStore((store, tracked) -> {
+            Set<Object> visited = Collections
+                    .newSetFromMap(new IdentityHashMap<>());
+            Map<String, Long> beanSizes = new LinkedHashMap<>();
+            store.getObjects().forEach((name, bean) -> beanSizes.put(name,
+                    estimate(name, bean, visited, singletons)));
+            footprints.add(new StoreFootprint(tracked.scope,
+                    getSessionId(store.getVaadinSession()), tracked.uiId,
+                    beanSizes));
+        });
+        footprints.sort(Comparator
+                .comparingLong(StoreFootprint::getRetainedSize).reversed());
+        return footprints;
+    }
+
+    /**
+     * Gets the beans retaining the most heap, summed over all the stores of
+     * the node.
+     * <p>
+     * This walks all the scoped beans of the node and should only be called
+     * on demand.
+     *
+     * @param limit
+     *            the maximum number of beans to return
+     * @return the heaviest beans, the heaviest first
+     */
+    public List<BeanFootprint> getHeaviestBeans(int limit) {
+        Map<String, BeanFootprint> beans = new LinkedHashMap<>();
+        for (StoreFootprint store : getStoreFootprints()) {
+            store.getBeanSizes().forEach((name, size) -> {
+                BeanFootprint bean = beans.computeIfAbsent(name,
+                        BeanFootprint::new);
+                bean.instances++;
+                bean.retainedSize += size;
+            });
+        }
+        return beans.values().stream()
+                .sorted(Comparator.comparingLong(BeanFootprint::getRetainedSize)
+                        .reversed())
+                .limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the singletons instantiated so far. They are collected for every
+     * report since most of them are created after the scopes are registered.
+     */
+    private Set<Object> getSingletons() {
+        Set<Object> singletons = Collections
+                .newSetFromMap(new IdentityHashMap<>());
+        if (singletonRegistry != null) {
+            for (String name : singletonRegistry.getSingletonNames()) {
+                Object singleton = singletonRegistry.getSingleton(name);
+                if (singleton != null) {
+                    singletons.add(singleton);
+                }
+            }
+        }
+        return singletons;
+    }
+
+    private long estimate(String name, Object bean, Set<Object> visited,
+            Set<Object> singletons) {
+        try {
+            return estimator.estimate(bean, visited, singletons);
+        } catch (RuntimeException e) {
+            // E.g. a collection failing to load or a proxy without its scope
+            getLogger().debug("Unable to estimate the size of the bean {}",
+                    name, e);
+            return 0;
+        }
+    }
+
+    private void forEachStore(BiConsumer<BeanStore, TrackedStore> action) {
+        stores.forEach((store, tracked) -> {
+            if (!store.isDestroyed()) {
+                action.accept(store, tracked);
+            }
+        });
+    }
+
+    private static String getSessionId(VaadinSession session) {
+        WrappedSession wrappedSession = session.getSession();
+        if (wrappedSession != null) {
+            try {
+                return wrappedSession.getId();
+            } catch (IllegalStateException e) {
+                // Invalidated, the store is about to be destroyed
+            }
+        }
+        return "session@"
+                + Integer.toHexString(System.identityHashCode(session));
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(VaadinScopesFootprint.class);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics of the bean stores of the Vaadin session and UI scopes.
+ * <p>
+ * Registered as the {@value #BEAN_NAME} bean when the
+ * {@code vaadin.scope-metrics} property is enabled. Counts the bean stores
+ * created and destroyed per scope, times the destruction of the stores, which
+ * runs the destruction callbacks of their beans while holding the session
+ * lock unless {@code vaadin.scope-async-destruction} is enabled, and the
+ * instantiation of every scoped bean by bean name. The time to instantiate a
+ * bean includes the scoped beans created as its dependencies.
+ * <p>
+ * When the {@code vaadin.scope-destruction-warning-threshold} property is set
+ * to a number of milliseconds, a warning is logged for every store whose
+ * destruction held the session lock for longer.
+ * <p>
+ * The metrics are kept in memory and can be read at any time, e.g. to publish
+ * them through a metrics registry.
+ *
+ * @author Vaadin Ltd
+ *
+ */
+public class VaadinScopesMetrics {
+
+    /**
+     * The name of the bean registered by the Vaadin scopes.
+     */
+    public static final String BEAN_NAME = "vaadinScopesMetrics";
+
+    private final long destructionWarningNanos;
+
+    private final Map<String, ScopeMetrics> scopes = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> instantiationTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Count, total and maximum of timed operations.
+     */
+    public static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Timer() {
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        /**
+         * Gets the number of timed operations.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Gets the total time of the operations.
+         *
+         * @param unit
+         *            the time unit of the result
+         * @return the total time
+         */
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(total.sum(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets the time of the longest operation.
+         *
+         * @param unit
+         *            the time unit of the result
+         * @return the maximum time
+         */
+        public long getMaxTime(TimeUnit unit) {
+            return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Metrics of the bean stores of a scope.
+     */
+    public static final class ScopeMetrics {
+
+        private final VaadinScopesMetrics metrics;
+        private final String scope;
+        private final LongAdder created = new LongAdder();
+        private final LongAdder destroyed = new LongAdder();
+        private final LongAdder destructionFailures = new LongAdder();
+        private final Timer destructionTime = new Timer();
+
+        private ScopeMetrics(VaadinScopesMetrics metrics, String scope) {
+            this.metrics = metrics;
+            this.scope = scope;
+        }
+
+        /**
+         * Gets the number of bean stores created, or deserialized, in the
+         * scope.
+         *
+         * @return the created store count
+         */
+        public long getCreatedStores() {
+            return created.sum();
+        }
+
+        /**
+         * Gets the number of bean stores destroyed in the scope.
+         *
+         * @return the destroyed store count
+         */
+        public long getDestroyedStores() {
+            return destroyed.sum();
+        }
+
+        /**
+         * Gets the number of destruction callbacks which have failed.
+         *
+         * @return the failed callback count
+         */
+        public long getDestructionFailures() {
+            return destructionFailures.sum();
+        }
+
+        /**
+         * Gets the time spent destroying the bean stores of the scope, while
+         * holding the session lock.
+         *
+         * @return the destruction timer
+         */
+        public Timer getDestructionTime() {
+            return destructionTime;
+        }
+
+        void destructionCallbacksFailed(int failures) {
+            destructionFailures.add(failures);
+        }
+
+        void storeCreated() {
+            created.increment();
+        }
+
+        void beanInstantiated(String beanName, long nanos) {
+            metrics.instantiationTimes
+                    .computeIfAbsent(beanName, name -> new Timer())
+                    .record(nanos);
+        }
+
+        void storeDestroyed(int beanCount, long nanos) {
+            destroyed.increment();
+            destructionTime.record(nanos);
+            if (metrics.destructionWarningNanos > 0
+                    && nanos > metrics.destructionWarningNanos) {
+                getLogger().warn(
+                        "Destroying {} beans of the {} scope held the session lock for {} ms",
+                        beanCount, scope,
+                        TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }
+    }
+
+    /**
+     * Creates new metrics.
+     *
+     * @param destructionWarningMillis
+     *            the duration in milliseconds of a store destruction above
+     *            which a warning is logged, or {@code 0} for no warning
+     */
+    VaadinScopesMetrics(long destructionWarningMillis) {
+        destructionWarningNanos = TimeUnit.MILLISECONDS
+                .toNanos(destructionWarningMillis);
+    }
+
+    /**
+     * Gets the metrics of the bean stores of each scope.
+     *
+     * @return the metrics by scope name
+     */
+    public Map<String, ScopeMetrics> getScopeMetrics() {
+        return Collections.unmodifiableMap(scopes);
+    }
+
+    /**
+     * Gets the time spent instantiating each scoped bean.
+     *
+     * @return the instantiation timers by bean name
+     */
+    public Map<String, Timer> getInstantiationTimes() {
+        return Collections.unmodifiableMap(instantiationTimes);
+    }
+
+    /**
+     * Gets the metrics of a scope, creating them if needed.
+     *
+     * @param scope
+     *            the scope name
+     * @return the scope metrics
+     */
+    ScopeMetrics getScopeMetrics(String scope) {
+        return scopes.computeIfAbsent(scope,
+                name -> new ScopeMetrics(this, name));
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(VaadinScopesMetrics.class);
+    }
+}
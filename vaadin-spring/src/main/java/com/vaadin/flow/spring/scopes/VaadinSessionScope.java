@@ -15,12 +15,16 @@
  */
 package com.vaadin.flow.spring.scopes;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 
 import com.vaadin.flow.server.VaadinSession;
-import com.vaadin.flow.shared.Registration;
-import com.vaadin.flow.spring.SpringVaadinSession;
 
 /**
  * Implementation of Spring's
@@ -28,6 +32,11 @@ import com.vaadin.flow.spring.SpringVaadinSession;
  * to the current {@link com.vaadin.flow.server.VaadinSession} (as opposed to
  * the current Servlet session). Registered by default as the scope "
  * {@value #VAADIN_SESSION_SCOPE_NAME}".
+ * <p>
+ * With the {@code vaadin.max-evictable-session-beans} property set to a
+ * positive number, each session keeps at most that many beans marked as
+ * {@link com.vaadin.flow.spring.annotation.VaadinSessionScope#evictable()
+ * evictable}, evicting the least recently used ones.
  *
  * @see com.vaadin.flow.spring.annotation.VaadinSessionScope
  *
@@ -38,40 +47,35 @@ public class VaadinSessionScope extends AbstractScope {
 
     public static final String VAADIN_SESSION_SCOPE_NAME = "vaadin-session";
 
-    private static class SessionBeanStore extends BeanStore {
+    /**
+     * Scope storages by session, read without locking the session. The session
+     * attribute remains the actual storage: entries are weakly referenced and
+     * looked up again from the attribute once collected or destroyed.
+     */
+    private final Map<VaadinSession, SessionScopeStorage> storages = new ConcurrentReferenceHashMap<>(
+            16, ReferenceType.WEAK);
 
-        private final Registration sessionDestroyListenerRegistration;
+    private ConfigurableListableBeanFactory beanFactory;
 
-        private SessionBeanStore(VaadinSession session) {
-            super(session);
-            if (session instanceof SpringVaadinSession) {
-                sessionDestroyListenerRegistration = null;
-                ((SpringVaadinSession) session)
-                        .addDestroyListener(event -> destroy());
-            } else {
-                sessionDestroyListenerRegistration = session.getService()
-                        .addSessionDestroyListener(event -> destroy());
-            }
-        }
+    private int maxEvictableBeans;
 
-        @Override
-        Void doDestroy() {
-            try {
-                getVaadinSession().setAttribute(BeanStore.class, null);
-                super.doDestroy();
-            } finally {
-                if (sessionDestroyListenerRegistration != null) {
-                    sessionDestroyListenerRegistration.remove();
-                }
-            }
-            return null;
-        }
-    }
+    /**
+     * Whether the beans are evictable, by bean name.
+     */
+    private final Map<String, Boolean> evictableBeans = new ConcurrentHashMap<>();
 
     @Override
     public void postProcessBeanFactory(
             ConfigurableListableBeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
         beanFactory.registerScope(VAADIN_SESSION_SCOPE_NAME, this);
+        initFootprint(beanFactory);
+        initMetrics(beanFactory, VAADIN_SESSION_SCOPE_NAME);
+        initAsyncDestruction(beanFactory, VAADIN_SESSION_SCOPE_NAME);
+        Environment environment = getEnvironment(beanFactory);
+        maxEvictableBeans = environment == null ? 0
+                : environment.getProperty("vaadin.max-evictable-session-beans",
+                        Integer.class, 0);
         ObjectFactory<VaadinSession> factory = this::getVaadinSession;
         beanFactory.registerResolvableDependency(VaadinSession.class, factory);
     }
@@ -84,17 +88,36 @@ public class VaadinSessionScope extends AbstractScope {
     @Override
     protected BeanStore getBeanStore() {
         final VaadinSession session = getVaadinSession();
+        SessionScopeStorage storage = storages.get(session);
+        if (storage != null && !storage.isDestroyed()) {
+            BeanStore beanStore = storage.findSessionBeanStore();
+            if (beanStore != null && !beanStore.isDestroyed()) {
+                return beanStore;
+            }
+        }
         session.lock();
         try {
-            BeanStore beanStore = session.getAttribute(BeanStore.class);
-            if (beanStore == null) {
-                beanStore = new SessionBeanStore(session);
-                session.setAttribute(BeanStore.class, beanStore);
+            storage = SessionScopeStorage.get(session);
+            storages.put(session, storage);
+            EvictingBeanStore beanStore = storage.getSessionBeanStore();
+            if (maxEvictableBeans > 0) {
+                beanStore.setEviction(maxEvictableBeans, this::isEvictable);
             }
+            trackBeanStore(VAADIN_SESSION_SCOPE_NAME, beanStore, -1);
             return beanStore;
         } finally {
             session.unlock();
         }
     }
 
+    private boolean isEvictable(String name) {
+        return evictableBeans.computeIfAbsent(name, key -> {
+            com.vaadin.flow.spring.annotation.VaadinSessionScope annotation = beanFactory
+                    .containsBean(key)
+                            ? beanFactory.findAnnotationOnBean(key,
+                                    com.vaadin.flow.spring.annotation.VaadinSessionScope.class)
+                            : null;
+            return annotation != null && annotation.evictable();
+        });
+    }
 }
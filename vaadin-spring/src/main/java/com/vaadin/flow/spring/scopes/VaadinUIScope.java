@@ -15,24 +15,29 @@
  */
 package com.vaadin.flow.spring.scopes;
 
-import java.util.HashMap;
+import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 
-import com.vaadin.flow.component.ComponentEventListener;
-import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.server.VaadinSession;
-import com.vaadin.flow.shared.Registration;
-import com.vaadin.flow.spring.SpringVaadinSession;
 
 /**
  * Implementation of Spring's
  * {@link org.springframework.beans.factory.config.Scope} that binds the beans
  * to the current {@link UI}. Registered by default as the scope "
  * {@value #VAADIN_UI_SCOPE_NAME}".
+ * <p>
+ * With the {@code vaadin.ui-scope-passivation-timeout} property set to a
+ * number of seconds, the beans of a UI not accessed for that long are
+ * passivated, see {@link BeanPassivationStore}.
  *
  * @see com.vaadin.flow.spring.annotation.UIScope
  *
@@ -43,73 +48,62 @@ public class VaadinUIScope extends AbstractScope {
 
     public static final String VAADIN_UI_SCOPE_NAME = "vaadin-ui";
 
-    private static class UIStoreWrapper
-            implements ComponentEventListener<DetachEvent> {
+    /**
+     * Scope storages by session, read without locking the session. The session
+     * attribute remains the actual storage: entries are weakly referenced and
+     * looked up again from the attribute once collected or destroyed.
+     */
+    private final Map<VaadinSession, SessionScopeStorage> storages = new ConcurrentReferenceHashMap<>(
+            16, ReferenceType.WEAK);
 
-        private final VaadinSession session;
+    private UIScopePassivation passivation;
 
-        private final Registration sessionDestroyListenerRegistration;
+    /**
+     * Bean store of a UI, kept as data of the UI so that repeated lookups for
+     * the same UI, e.g. every method call of a scoped proxy during a request,
+     * skip the session and UI store lookups. The store is not serialized with
+     * the UI, it is looked up again after deserialization.
+     */
+    private static class UIBeanStore implements Serializable {
 
-        private final Map<Integer, BeanStore> uiStores;
+        private final transient BeanStore beanStore;
 
-        private UIStoreWrapper(VaadinSession session) {
-            assert session.hasLock();
-            uiStores = new HashMap<>();
-            this.session = session;
-            if (session instanceof SpringVaadinSession) {
-                sessionDestroyListenerRegistration = null;
-                ((SpringVaadinSession) session)
-                        .addDestroyListener(event -> destroy());
-            } else {
-                sessionDestroyListenerRegistration = session.getService()
-                        .addSessionDestroyListener(event -> destroy());
-            }
-        }
-
-        @Override
-        public void onComponentEvent(DetachEvent event) {
-            assert session.hasLock();
-            UI ui = event.getUI();
-            BeanStore beanStore = uiStores.remove(ui.getUIId());
-            if (beanStore != null) {
-                beanStore.destroy();
-            }
-        }
-
-        BeanStore getBeanStore(UI ui) {
-            BeanStore beanStore = uiStores.get(ui.getUIId());
-            if (beanStore == null) {
-                beanStore = new BeanStore(session);
-                uiStores.put(ui.getUIId(), beanStore);
-                ui.addDetachListener(this);
-            }
-            return beanStore;
-        }
-
-        private void destroy() {
-            session.lock();
-            try {
-                session.setAttribute(UIStoreWrapper.class, null);
-                uiStores.values().forEach(BeanStore::destroy);
-                uiStores.clear();
-            } finally {
-                session.unlock();
-                if (sessionDestroyListenerRegistration != null) {
-                    sessionDestroyListenerRegistration.remove();
-                }
-            }
+        private UIBeanStore(BeanStore beanStore) {
+            this.beanStore = beanStore;
         }
-
     }
 
     @Override
     public void postProcessBeanFactory(
             ConfigurableListableBeanFactory beanFactory) {
         beanFactory.registerScope(VAADIN_UI_SCOPE_NAME, this);
+        initFootprint(beanFactory);
+        initMetrics(beanFactory, VAADIN_UI_SCOPE_NAME);
+        initAsyncDestruction(beanFactory, VAADIN_UI_SCOPE_NAME);
+        Environment environment = getEnvironment(beanFactory);
+        int passivationTimeout = environment == null ? 0
+                : environment.getProperty(
+                        "vaadin.ui-scope-passivation-timeout", Integer.class, 0);
+        if (passivationTimeout > 0) {
+            passivation = new UIScopePassivation(
+                    TimeUnit.SECONDS.toMillis(passivationTimeout),
+                    () -> beanFactory
+                            .getBeanProvider(BeanPassivationStore.class)
+                            .getIfAvailable(),
+                    beanFactory);
+        }
         ObjectFactory<UI> factory = this::getUI;
         beanFactory.registerResolvableDependency(UI.class, factory);
     }
 
+    @Override
+    public void destroy() {
+        if (passivation != null) {
+            passivation.shutdown();
+        }
+        super.destroy();
+    }
+
     @Override
     public String getConversationId() {
         return getVaadinSession().getSession().getId() + "-UI:"
@@ -119,14 +113,41 @@ public class VaadinUIScope extends AbstractScope {
     @Override
     protected BeanStore getBeanStore() {
         final VaadinSession session = getVaadinSession();
+        UI ui = getUI();
+        if (!session.hasLock()) {
+            // The data of the UI may only be accessed holding the lock
+            return findBeanStore(session, ui);
+        }
+        UIBeanStore cached = ComponentUtil.getData(ui, UIBeanStore.class);
+        if (cached != null && cached.beanStore != null
+                && !cached.beanStore.isDestroyed()) {
+            return cached.beanStore;
+        }
+        BeanStore beanStore = findBeanStore(session, ui);
+        ComponentUtil.setData(ui, UIBeanStore.class,
+                new UIBeanStore(beanStore));
+        return beanStore;
+    }
+
+    private BeanStore findBeanStore(VaadinSession session, UI ui) {
+        SessionScopeStorage storage = storages.get(session);
+        if (storage != null && !storage.isDestroyed()) {
+            BeanStore beanStore = storage.findUIBeanStore(ui);
+            if (beanStore != null && !beanStore.isDestroyed()) {
+                return beanStore;
+            }
+        }
         session.lock();
         try {
-            UIStoreWrapper wrapper = session.getAttribute(UIStoreWrapper.class);
-            if (wrapper == null) {
-                wrapper = new UIStoreWrapper(session);
-                session.setAttribute(UIStoreWrapper.class, wrapper);
+            storage = SessionScopeStorage.get(session);
+            storages.put(session, storage);
+            BeanStore beanStore = storage.getUIBeanStore(ui,
+                    passivation != null);
+            trackBeanStore(VAADIN_UI_SCOPE_NAME, beanStore, ui.getUIId());
+            if (passivation != null) {
+                passivation.register(beanStore);
             }
-            return wrapper.getBeanStore(getUI());
+            return beanStore;
         } finally {
             session.unlock();
         }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+
+import com.vaadin.flow.server.VaadinServletService;
+
+public class DeferredRouteRegistrationTest {
+
+    @Test
+    public void await_registrationRunning_waitsUntilDone()
+            throws ServletException {
+        ServletContext context = Mockito.mock(ServletContext.class);
+        DeferredRouteRegistration registration = new DeferredRouteRegistration(
+                Collections.singletonList("com.example.MainView"));
+        AtomicBoolean registered = new AtomicBoolean();
+        registration.start(context, () -> {
+            sleep(100);
+            registered.set(true);
+        });
+        Mockito.verify(context).setAttribute(
+                DeferredRouteRegistration.class.getName(), registration);
+        Mockito.when(context
+                .getAttribute(DeferredRouteRegistration.class.getName()))
+                .thenReturn(registration);
+
+        DeferredRouteRegistration.await(context);
+        Assert.assertTrue(registered.get());
+        Assert.assertEquals(Collections.singletonList("com.example.MainView"),
+                registration.getRouteClassNames());
+    }
+
+    @Test
+    public void init_registrationPending_servletIsInitializedAfterRegistration()
+            throws Exception {
+        ServletContext context = Mockito.mock(ServletContext.class);
+        ServletConfig config = Mockito.mock(ServletConfig.class);
+        Mockito.when(config.getServletContext()).thenReturn(context);
+        DeferredRouteRegistration registration = new DeferredRouteRegistration(
+                Collections.emptyList());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean registered = new AtomicBoolean();
+        registration.start(context, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            registered.set(true);
+        });
+        Mockito.when(context
+                .getAttribute(DeferredRouteRegistration.class.getName()))
+                .thenReturn(registration);
+
+        AtomicBoolean registeredOnInit = new AtomicBoolean();
+        SpringServlet servlet = new SpringServlet(
+                Mockito.mock(ApplicationContext.class), false) {
+            @Override
+            protected VaadinServletService createServletService()
+                    throws ServletException {
+                registeredOnInit.set(registered.get());
+                throw new ServletException("Stop the initialization");
+            }
+        };
+        Thread releaser = new Thread(() -> {
+            sleep(500);
+            release.countDown();
+        });
+        releaser.start();
+        try {
+            servlet.init(config);
+            Assert.fail("The initialization should have been stopped");
+        } catch (ServletException e) {
+            Assert.assertEquals("Stop the initialization", e.getMessage());
+        }
+        releaser.join();
+        Assert.assertTrue(registeredOnInit.get());
+    }
+
+    @Test(expected = ServletException.class)
+    public void await_registrationFailed_throws() throws ServletException {
+        DeferredRouteRegistration registration = new DeferredRouteRegistration(
+                Collections.emptyList());
+        registration.start(Mockito.mock(ServletContext.class), () -> {
+            throw new IllegalStateException("Invalid route");
+        });
+
+        registration.await();
+    }
+
+    @Test
+    public void await_registrationFailedWithError_throws() {
+        DeferredRouteRegistration registration = new DeferredRouteRegistration(
+                Collections.emptyList());
+        NoClassDefFoundError error = new NoClassDefFoundError(
+                "com/example/Missing");
+        registration.start(Mockito.mock(ServletContext.class), () -> {
+            throw error;
+        });
+
+        try {
+            registration.await();
+            Assert.fail("The registration failure should be rethrown");
+        } catch (ServletException e) {
+            Assert.assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void await_noRegistration_returnsImmediately()
+            throws ServletException {
+        DeferredRouteRegistration
+                .await(Mockito.mock(ServletContext.class));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.flow.shared.ApplicationConstants;
+
+public class DevModeInitializationTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private final DevModeInitializationListener listener = new DevModeInitializationListener() {
+        @Override
+        public void phaseStarted(String phase) {
+            events.add("started " + phase);
+        }
+
+        @Override
+        public void phaseCompleted(String phase, long durationMillis) {
+            events.add("completed " + phase);
+        }
+
+        @Override
+        public void phaseFailed(String phase, Throwable failure) {
+            events.add("failed " + phase);
+        }
+    };
+
+    @Test
+    public void runPhase_listenersAreNotified() {
+        DevModeInitialization initialization = new DevModeInitialization(
+                Collections.singleton(listener));
+
+        Assert.assertEquals("result", initialization
+                .runPhase(DevModeInitializationListener.SCAN, () -> "result"));
+        try {
+            initialization.runPhase(
+                    DevModeInitializationListener.DEV_MODE_HANDLER, () -> {
+                        throw new IllegalStateException();
+                    });
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        Assert.assertEquals(Arrays.asList("started scan",
+                "completed scan", "started dev-mode-handler",
+                "failed dev-mode-handler"), events);
+    }
+
+    @Test
+    public void writePlaceholderIfRunning_placeholderUntilDone()
+            throws IOException, ServletException, InterruptedException {
+        ServletContext context = Mockito.mock(ServletContext.class);
+        DevModeInitialization initialization = new DevModeInitialization(
+                Collections.emptyList());
+        Mockito.when(context
+                .getAttribute(DevModeInitialization.class.getName()))
+                .thenReturn(initialization);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        initialization.start(context, () -> {
+            await(release);
+            done.countDown();
+        });
+
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        StringWriter body = new StringWriter();
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(body));
+        Assert.assertTrue(DevModeInitialization
+                .writePlaceholderIfRunning(context, pageRequest(), response));
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        Assert.assertTrue(body.toString().contains("refresh"));
+
+        release.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        while (initialization.isRunning()) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(DevModeInitialization
+                .writePlaceholderIfRunning(context, pageRequest(), response));
+    }
+
+    @Test
+    public void writePlaceholderIfRunning_uidlRequest_requestIsHandled()
+            throws IOException, ServletException {
+        ServletContext context = Mockito.mock(ServletContext.class);
+        DevModeInitialization initialization = new DevModeInitialization(
+                Collections.emptyList());
+        Mockito.when(context
+                .getAttribute(DevModeInitialization.class.getName()))
+                .thenReturn(initialization);
+        CountDownLatch release = new CountDownLatch(1);
+        initialization.start(context, () -> await(release));
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("POST");
+        Mockito.when(request
+                .getParameter(ApplicationConstants.REQUEST_TYPE_PARAMETER))
+                .thenReturn(ApplicationConstants.REQUEST_TYPE_UIDL);
+        try {
+            Assert.assertFalse(DevModeInitialization.writePlaceholderIfRunning(
+                    context, request,
+                    Mockito.mock(HttpServletResponse.class)));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void writePlaceholderIfRunning_initializationFailedWithError_throws()
+            throws IOException, InterruptedException {
+        ServletContext context = Mockito.mock(ServletContext.class);
+        DevModeInitialization initialization = new DevModeInitialization(
+                Collections.emptyList());
+        Mockito.when(context
+                .getAttribute(DevModeInitialization.class.getName()))
+                .thenReturn(initialization);
+        NoClassDefFoundError error = new NoClassDefFoundError(
+                "com/example/Missing");
+        initialization.start(context, () -> {
+            throw error;
+        });
+        while (initialization.isRunning()) {
+            Thread.sleep(10);
+        }
+
+        try {
+            DevModeInitialization.writePlaceholderIfRunning(context,
+                    pageRequest(), Mockito.mock(HttpServletResponse.class));
+            Assert.fail("The initialization failure should be rethrown");
+        } catch (ServletException e) {
+            Assert.assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void writePlaceholderIfRunning_notStarted_requestIsHandled()
+            throws IOException, ServletException {
+        Assert.assertFalse(DevModeInitialization.writePlaceholderIfRunning(
+                Mockito.mock(ServletContext.class), pageRequest(),
+                Mockito.mock(HttpServletResponse.class)));
+    }
+
+    private HttpServletRequest pageRequest() {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("GET");
+        return request;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
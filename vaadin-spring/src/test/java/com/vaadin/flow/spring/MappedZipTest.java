@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedZipTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void forEach_entriesAreVisitedInOrder() throws IOException {
+        MappedZip zip = MappedZip.open(createZip().toPath());
+
+        List<String> names = new ArrayList<>();
+        zip.forEach(entry -> names.add(entry.getName()));
+        Assert.assertEquals(Arrays.asList("com/", "com/Stored.txt",
+                "com/Deflated.txt", "lib/nested.jar"), names);
+    }
+
+    @Test
+    public void getContent_storedAndDeflatedEntries_contentIsRead()
+            throws IOException {
+        MappedZip zip = MappedZip.open(createZip().toPath());
+
+        Assert.assertEquals("stored", read(zip.getContent("com/Stored.txt")));
+        Assert.assertEquals(repeated(),
+                read(zip.getContent("com/Deflated.txt")));
+        Assert.assertNull(zip.getContent("com/Missing.txt"));
+        Assert.assertNull(zip.getContent("com/"));
+    }
+
+    @Test
+    public void getContent_nestedStoredJar_nestedEntriesAreRead()
+            throws IOException {
+        MappedZip zip = MappedZip.open(createZip().toPath());
+
+        MappedZip nested = new MappedZip(zip.getContent("lib/nested.jar"));
+        Assert.assertEquals("nested", read(nested.getContent("Nested.txt")));
+    }
+
+    @Test
+    public void nameMatches_prefixAndSuffixAreCompared() throws IOException {
+        MappedZip zip = MappedZip.open(createZip().toPath());
+
+        List<String> names = new ArrayList<>();
+        zip.forEach(entry -> {
+            if (entry.nameMatches("com/", ".txt")) {
+                names.add(entry.getName());
+            }
+        });
+        Assert.assertEquals(Arrays.asList("com/Stored.txt", "com/Deflated.txt"),
+                names);
+    }
+
+    @Test(expected = IOException.class)
+    public void open_notAZip_throws() throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), new byte[100]);
+        MappedZip.open(file.toPath());
+    }
+
+    private File createZip() throws IOException {
+        ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        try (ZipOutputStream stream = new ZipOutputStream(nested)) {
+            putEntry(stream, "Nested.txt", "nested".getBytes(
+                    StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+        }
+
+        File file = temporaryFolder.newFile("test.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(
+                Files.newOutputStream(file.toPath()))) {
+            stream.putNextEntry(new ZipEntry("com/"));
+            stream.closeEntry();
+            putEntry(stream, "com/Stored.txt",
+                    "stored".getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.STORED);
+            putEntry(stream, "com/Deflated.txt",
+                    repeated().getBytes(StandardCharsets.UTF_8),
+                    ZipEntry.DEFLATED);
+            putEntry(stream, "lib/nested.jar", nested.toByteArray(),
+                    ZipEntry.STORED);
+        }
+        return file;
+    }
+
+    private void putEntry(ZipOutputStream stream, String name, byte[] content,
+            int method) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        stream.putNextEntry(entry);
+        stream.write(content);
+        stream.closeEntry();
+    }
+
+    private String repeated() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("deflated ").append(i);
+        }
+        return builder.toString();
+    }
+
+    private String read(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
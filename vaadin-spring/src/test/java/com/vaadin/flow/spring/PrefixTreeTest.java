@@ -48,4 +48,68 @@ public class PrefixTreeTest {
         Assert.assertFalse(prefixTree.hasPrefix("a"));
     }
 
+    @Test
+    public void hasPrefix_overlappingPrefixes_allPrefixesMatch() {
+        PrefixTree prefixTree = new PrefixTree(
+                Arrays.asList("com/sun", "com/sunny", "com/s", "org"));
+        Assert.assertTrue(prefixTree.hasPrefix("com/sun"));
+        Assert.assertTrue(prefixTree.hasPrefix("com/sunny/day"));
+        Assert.assertTrue(prefixTree.hasPrefix("com/s"));
+        Assert.assertTrue(prefixTree.hasPrefix("com/soft"));
+        Assert.assertFalse(prefixTree.hasPrefix("com/"));
+        Assert.assertFalse(prefixTree.hasPrefix("co"));
+        Assert.assertFalse(prefixTree.hasPrefix("net"));
+    }
+
+    @Test
+    public void hasPrefix_prefixAddedInAnyOrder_sameResult() {
+        PrefixTree shortFirst = new PrefixTree(
+                Arrays.asList("org/apache", "org/apache/commons", "org/a"));
+        PrefixTree longFirst = new PrefixTree(
+                Arrays.asList("org/apache/commons", "org/a", "org/apache"));
+        for (String path : Arrays.asList("org/apache/Foo.class",
+                "org/apache/commons/Bar.class", "org/aspectj", "org/b",
+                "org", "org/")) {
+            Assert.assertEquals(path, shortFirst.hasPrefix(path),
+                    longFirst.hasPrefix(path));
+        }
+    }
+
+    @Test
+    public void match_markers_markersOfAllPrefixesAreCombined() {
+        PrefixTree prefixTree = new PrefixTree(Collections.emptyList());
+        prefixTree.addPrefix("com/vaadin", 1);
+        prefixTree.addPrefix("com/vaadin/flow/component", 2);
+        prefixTree.addPrefix("com/vaadin/flow", 4);
+
+        Assert.assertEquals(0, prefixTree.match("com/example"));
+        Assert.assertEquals(1, prefixTree.match("com/vaadin/webjar"));
+        Assert.assertEquals(5, prefixTree.match("com/vaadin/flow/server"));
+        Assert.assertEquals(7,
+                prefixTree.match("com/vaadin/flow/component/Foo.class"));
+    }
+
+    @Test
+    public void matchExtensions_longerPrefixes_markersAreCombined() {
+        PrefixTree prefixTree = new PrefixTree(Collections.emptyList());
+        prefixTree.addPrefix("com/vaadin", 1);
+        prefixTree.addPrefix("com/vaadin/flow/component", 2);
+        prefixTree.addPrefix("org/apache", 1);
+
+        Assert.assertEquals(3, prefixTree.matchExtensions(""));
+        Assert.assertEquals(3, prefixTree.matchExtensions("com/"));
+        Assert.assertEquals(3, prefixTree.matchExtensions("com/vaadin"));
+        Assert.assertEquals(2, prefixTree.matchExtensions("com/vaadin/"));
+        Assert.assertEquals(2,
+                prefixTree.matchExtensions("com/vaadin/flow/component"));
+        Assert.assertEquals(0,
+                prefixTree.matchExtensions("com/vaadin/flow/server/"));
+        Assert.assertEquals(1, prefixTree.matchExtensions("org/"));
+        Assert.assertEquals(0, prefixTree.matchExtensions("net/"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addPrefix_emptyPrefix_throws() {
+        new PrefixTree(Collections.singleton(""));
+    }
 }
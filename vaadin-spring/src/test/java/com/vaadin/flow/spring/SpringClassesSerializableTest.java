@@ -60,6 +60,7 @@ public class SpringClassesSerializableTest extends ClassesSerializableTest {
     protected Stream<String> getExcludedPatterns() {
         return Stream.concat(Stream.of(
                 "com\\.vaadin\\.flow\\.spring\\.ForwardingRequestWrapper",
+                "com\\.vaadin\\.flow\\.spring\\.BeanRegistrationTracker(\\$.*)?",
                 "com\\.vaadin\\.flow\\.spring\\.VaadinScanPackagesRegistrar",
                 "com\\.vaadin\\.flow\\.spring\\.VaadinScanPackagesRegistrar\\$VaadinScanPackages",
                 "com\\.vaadin\\.flow\\.spring\\.VaadinServletContextInitializer",
@@ -82,7 +83,24 @@ public class SpringClassesSerializableTest extends ClassesSerializableTest {
                 "com\\.vaadin\\.flow\\.spring\\.scopes\\.VaadinSessionScope",
                 "com\\.vaadin\\.flow\\.spring\\.scopes\\.AbstractScope",
                 "com\\.vaadin\\.flow\\.spring\\.scopes\\.VaadinUIScope",
-                "com\\.vaadin\\.flow\\.spring\\.VaadinServletContextInitializer\\$ClassPathScanner",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.VaadinRouteScope",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.VaadinScopesFootprint(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.RetainedSizeEstimator(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.UIScopePassivation(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.BeanPassivationStore",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.VaadinScopesMetrics(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.scopes\\.CopyOnWriteArrayMap\\$(1|SnapshotIterator)",
+                "com\\.vaadin\\.flow\\.spring\\.VaadinServletContextInitializer\\$SharedTypeIndex",
+                "com\\.vaadin\\.flow\\.spring\\.VaadinServletContextInitializer\\$StartupStepListener",
+                "com\\.vaadin\\.flow\\.spring\\.VaadinTypeScanner(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.VaadinTypeIndexGenerator",
+                "com\\.vaadin\\.flow\\.spring\\.VaadinTypeScanCache(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.MappedZip(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.MappedClassScanner",
+                "com\\.vaadin\\.flow\\.spring\\.ClassFileInfo(\\$.*)?",
+                "com\\.vaadin\\.flow\\.spring\\.DeferredRouteRegistration",
+                "com\\.vaadin\\.flow\\.spring\\.DevModeInitialization",
+                "com\\.vaadin\\.flow\\.spring\\.DevModeInitializationListener",
                 "com\\.vaadin\\.flow\\.spring\\.VaadinServletContextInitializer\\$CustomResourceLoader"),
                 super.getExcludedPatterns());
     }
@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -33,6 +34,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,7 +45,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.GenericWebApplicationContext;
 
 import com.vaadin.flow.di.Lookup;
 import com.vaadin.flow.function.VaadinApplicationInitializationBootstrap;
@@ -221,6 +229,174 @@ public class SpringLookupInitializerTest {
         Assert.assertTrue(serviceClasses.contains(ArrayList.class));
     }
 
+    @Test
+    public void createLookup_severalServiceImpls_beansAreResolvedOncePerService_allImplsAreInstantiated() {
+        Map<Class<?>, Collection<Class<?>>> services = new HashMap<>();
+        services.put(List.class, Arrays.asList(ArrayList.class,
+                LinkedList.class, Vector.class, Stack.class));
+        services.put(TestSpi.class,
+                Collections.singletonList(ServiceImpl.class));
+        Mockito.when(webAppContext.getBeansOfType(List.class))
+                .thenReturn(Collections.singletonMap("foo", new Stack<>()));
+
+        Lookup lookup = initializer.createLookup(context, services);
+
+        Mockito.verify(webAppContext).getBeansOfType(List.class);
+        Mockito.verify(webAppContext).getBeansOfType(TestSpi.class);
+
+        Set<?> listClasses = lookup.lookupAll(List.class).stream()
+                .map(Object::getClass).collect(Collectors.toSet());
+        Assert.assertEquals(
+                new HashSet<>(Arrays.asList(Stack.class, ArrayList.class,
+                        LinkedList.class)),
+                listClasses);
+        Assert.assertEquals(ServiceImpl.class,
+                lookup.lookup(TestSpi.class).getClass());
+    }
+
+    @Test
+    public void createLookup_singletonBean_beansAreLookedUpOnce() {
+        Mockito.when(webAppContext.getBeansOfType(TestSpi.class))
+                .thenReturn(Collections.singletonMap("foo", new TestSpi()));
+        Mockito.when(webAppContext.isSingleton("foo")).thenReturn(true);
+        Lookup lookup = initializer.createLookup(context,
+                Collections.emptyMap());
+
+        TestSpi service = lookup.lookup(TestSpi.class);
+        Assert.assertSame(service, lookup.lookup(TestSpi.class));
+        Assert.assertSame(lookup.lookupAll(TestSpi.class),
+                lookup.lookupAll(TestSpi.class));
+
+        Mockito.verify(webAppContext, Mockito.times(2))
+                .getBeansOfType(TestSpi.class);
+    }
+
+    @Test
+    public void createLookup_noBean_missingServiceIsLookedUpOnEveryCall() {
+        Lookup lookup = initializer.createLookup(context,
+                Collections.emptyMap());
+
+        Assert.assertNull(lookup.lookup(TestSpi.class));
+        Assert.assertNull(lookup.lookup(TestSpi.class));
+
+        Mockito.verify(webAppContext, Mockito.times(2))
+                .getBeansOfType(TestSpi.class);
+    }
+
+    @Test
+    public void createLookup_beanDefinitionsChange_beansAreLookedUpAgain() {
+        Mockito.when(webAppContext.getBeansOfType(TestSpi.class))
+                .thenReturn(Collections.singletonMap("foo", new TestSpi()));
+        Mockito.when(webAppContext.isSingleton("foo")).thenReturn(true);
+        Lookup lookup = initializer.createLookup(context,
+                Collections.emptyMap());
+        lookup.lookup(TestSpi.class);
+
+        TestSpi bean = new TestSpi();
+        Mockito.when(webAppContext.getBeansOfType(TestSpi.class))
+                .thenReturn(Collections.singletonMap("foo", bean));
+        Mockito.when(webAppContext.getBeanDefinitionCount()).thenReturn(1);
+
+        Assert.assertSame(bean, lookup.lookup(TestSpi.class));
+    }
+
+    @Test
+    public void createLookup_singletonRegistered_singletonIsReturned() {
+        GenericWebApplicationContext appContext = new GenericWebApplicationContext();
+        appContext.refresh();
+        Mockito.when(servletContext.getAttribute(
+                WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE))
+                .thenReturn(appContext);
+        Lookup lookup = initializer.createLookup(context,
+                Collections.emptyMap());
+        Assert.assertNull(lookup.lookup(TestSpi.class));
+
+        TestSpi service = new TestSpi();
+        appContext.getBeanFactory().registerSingleton("service", service);
+
+        Assert.assertSame(service, lookup.lookup(TestSpi.class));
+        appContext.close();
+    }
+
+    @Test
+    public void createLookup_singletonRegistryLocked_serviceIsReturned()
+            throws Exception {
+        GenericWebApplicationContext appContext = new GenericWebApplicationContext();
+        appContext.registerBean("service", TestSpi.class);
+        appContext.refresh();
+        Mockito.when(servletContext.getAttribute(
+                WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE))
+                .thenReturn(appContext);
+        Lookup lookup = initializer.createLookup(context,
+                Collections.emptyMap());
+        TestSpi service = lookup.lookup(TestSpi.class);
+
+        // Spring holds the singleton mutex while creating any singleton
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread creator = new Thread(() -> {
+            synchronized (appContext.getBeanFactory().getSingletonMutex()) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        creator.start();
+        locked.await();
+        try {
+            Assert.assertSame(service, CompletableFuture
+                    .supplyAsync(() -> lookup.lookup(TestSpi.class))
+                    .get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            creator.join();
+            appContext.close();
+        }
+    }
+
+    @Test
+    public void createLookup_applicationStartup_instantiationStepIsRecorded() {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(
+                100);
+        GenericWebApplicationContext appContext = new GenericWebApplicationContext();
+        appContext.setApplicationStartup(startup);
+        appContext.refresh();
+        Mockito.when(servletContext.getAttribute(
+                WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE))
+                .thenReturn(appContext);
+        initializer.createLookup(context, Collections.singletonMap(
+                TestSpi.class, Collections.singleton(ServiceImpl.class)));
+
+        StartupStep step = startup.getBufferedTimeline().getEvents().stream()
+                .map(TimelineEvent::getStartupStep)
+                .filter(candidate -> candidate.getName()
+                        .equals("vaadin.startup.lookup.services"))
+                .findFirst().get();
+        Map<String, String> tags = new HashMap<>();
+        step.getTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+        Assert.assertEquals("1", tags.get("services"));
+        Assert.assertEquals("1", tags.get("threads"));
+        Assert.assertTrue(tags.containsKey("instantiation-time-ms"));
+        appContext.close();
+    }
+
+    @Test
+    public void createLookup_prototypeBean_beansAreLookedUpOnEveryCall() {
+        Mockito.when(webAppContext.getBeansOfType(TestSpi.class))
+                .thenReturn(Collections.singletonMap("foo", new TestSpi()));
+        Lookup lookup = initializer.createLookup(context,
+                Collections.emptyMap());
+
+        lookup.lookup(TestSpi.class);
+        lookup.lookup(TestSpi.class);
+
+        Mockito.verify(webAppContext, Mockito.times(2))
+                .getBeansOfType(TestSpi.class);
+    }
+
     private <T> void assertSingleServiceInLookup(Lookup lookup, Class<T> spi,
             Class<? extends T> impl) {
         Assert.assertEquals(impl, lookup.lookup(spi).getClass());
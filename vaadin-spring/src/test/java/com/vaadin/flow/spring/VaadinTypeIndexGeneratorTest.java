@@ -0,0 +1,166 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.router.HasErrorParameter;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.router.RouteNotFoundError;
+
+public class VaadinTypeIndexGeneratorTest {
+
+    private static final String PACKAGE = VaadinTypeIndexGeneratorTest.class
+            .getPackage().getName();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Route("indexed")
+    public static class IndexedRoute extends Component {
+    }
+
+    @Test
+    public void generate_indexIsLoadedFromClassLoader() throws IOException {
+        File outputDirectory = temporaryFolder.newFolder();
+        File file = VaadinTypeIndexGenerator.generate(outputDirectory,
+                Collections.singleton(PACKAGE), getClass().getClassLoader());
+        Assert.assertTrue(file.isFile());
+
+        VaadinTypeIndex index;
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] { outputDirectory.toURI().toURL() }, null)) {
+            index = VaadinTypeIndex.load(loader);
+        }
+        Assert.assertNotNull(index);
+
+        Assert.assertTrue(index.covers(Arrays.asList(PACKAGE,
+                HasErrorParameter.class.getPackage().getName())));
+        Assert.assertTrue(index.hasKeys(Arrays.asList(Route.class.getName(),
+                HasErrorParameter.class.getName())));
+
+        Set<String> routes = find(index, Route.class);
+        Assert.assertTrue(routes.contains(IndexedRoute.class.getName()));
+
+        Set<String> errorViews = find(index, HasErrorParameter.class);
+        Assert.assertTrue(
+                errorViews.contains(RouteNotFoundError.class.getName()));
+    }
+
+    @Test
+    public void load_noIndex_returnsNull() throws IOException {
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] { temporaryFolder.newFolder().toURI().toURL() },
+                null)) {
+            Assert.assertNull(VaadinTypeIndex.load(loader));
+        }
+    }
+
+    @Test
+    public void write_sameIndex_sameOutput() throws IOException {
+        VaadinTypeIndex index = new VaadinTypeIndex(
+                Arrays.asList("com.b", "com.a"),
+                Arrays.asList("b.Key", "a.Key"),
+                Collections.singletonMap("a.Key",
+                        new LinkedHashSet<>(
+                                Arrays.asList("com.b.Foo", "com.a.Bar"))));
+
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+
+        Assert.assertTrue(writer.toString().endsWith("@packages=com.a,com.b\n"
+                + "@types=a.Key,b.Key\n" + "a.Key=com.a.Bar,com.b.Foo\n"));
+    }
+
+    @Test
+    public void load_noPackagesIndexed_nothingIsCovered() throws IOException {
+        VaadinTypeIndex loaded = writeAndLoad(
+                new VaadinTypeIndex(Collections.emptyList(),
+                        Collections.singleton("a.Key"),
+                        Collections.emptyMap()));
+
+        Assert.assertTrue(loaded.getPackages().isEmpty());
+        Assert.assertFalse(loaded.covers(Collections.singleton("com.a")));
+    }
+
+    @Test
+    public void load_noPackagesEntry_nothingIsCovered() throws IOException {
+        VaadinTypeIndex loaded = load("@types=a.Key\na.Key=com.a.Bar\n");
+
+        Assert.assertTrue(loaded.getPackages().isEmpty());
+        Assert.assertFalse(loaded.covers(Collections.singleton("com.a")));
+    }
+
+    @Test
+    public void load_allPackagesIndexed_everyPackageIsCovered()
+            throws IOException {
+        VaadinTypeIndex index = new VaadinTypeIndex(
+                Collections.singleton(""), Collections.singleton("a.Key"),
+                Collections.emptyMap());
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+        Assert.assertTrue(writer.toString().contains("@packages=*\n"));
+
+        VaadinTypeIndex loaded = load(writer.toString());
+
+        Assert.assertEquals(Collections.singleton(""), loaded.getPackages());
+        Assert.assertTrue(loaded.covers(Collections.singleton("com.a")));
+    }
+
+    private VaadinTypeIndex writeAndLoad(VaadinTypeIndex index)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        index.write(writer);
+        return load(writer.toString());
+    }
+
+    private VaadinTypeIndex load(String content) throws IOException {
+        File outputDirectory = temporaryFolder.newFolder();
+        File file = new File(outputDirectory,
+                VaadinTypeIndex.RESOURCE_LOCATION);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(),
+                content.getBytes(StandardCharsets.ISO_8859_1));
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] { outputDirectory.toURI().toURL() }, null)) {
+            return VaadinTypeIndex.load(loader);
+        }
+    }
+
+    private Set<String> find(VaadinTypeIndex index, Class<?> key) {
+        return index
+                .find(index.getPackages(),
+                        Collections.singleton(key.getName()))
+                .collect(Collectors.toSet());
+    }
+}
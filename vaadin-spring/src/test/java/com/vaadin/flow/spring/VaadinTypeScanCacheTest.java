@@ -0,0 +1,190 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+
+public class VaadinTypeScanCacheTest {
+
+    private static final String DIR_ROOT = "file:/classes/";
+
+    private static final String JAR_ROOT = "jar:file:/lib.jar!/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void store_load_entriesAreRestored() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "cache");
+        VaadinTypeScanCache cache = new VaadinTypeScanCache(file, "sig");
+        cache.put(DIR_ROOT, "1-2-3", matches("com.Foo", "a.Key"));
+        cache.store();
+
+        VaadinTypeScanCache loaded = new VaadinTypeScanCache(file, "sig");
+        loaded.load();
+        Assert.assertEquals(matches("com.Foo", "a.Key"),
+                loaded.get(DIR_ROOT, "1-2-3"));
+        Assert.assertNull(loaded.get(DIR_ROOT, "1-2-4"));
+    }
+
+    @Test
+    public void load_otherSignature_nothingIsLoaded() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "cache");
+        VaadinTypeScanCache cache = new VaadinTypeScanCache(file, "sig");
+        cache.put(DIR_ROOT, "1-2-3", matches("com.Foo", "a.Key"));
+        cache.store();
+
+        VaadinTypeScanCache loaded = new VaadinTypeScanCache(file, "other");
+        loaded.load();
+        Assert.assertNull(loaded.get(DIR_ROOT, "1-2-3"));
+    }
+
+    @Test
+    public void validate_changedJar_allEntriesAreDropped() {
+        VaadinTypeScanCache cache = new VaadinTypeScanCache(
+                new File(temporaryFolder.getRoot(), "cache"), "sig");
+        cache.put(DIR_ROOT, "1-2-3", matches("com.Foo", "a.Key"));
+        cache.put(JAR_ROOT, "10-20", matches("lib.Bar", "a.Key"));
+
+        Map<String, String> fingerprints = new HashMap<>();
+        fingerprints.put(DIR_ROOT, "1-2-3");
+        fingerprints.put(JAR_ROOT, "10-20");
+        cache.validate(fingerprints);
+        Assert.assertNotNull(cache.get(DIR_ROOT, "1-2-3"));
+
+        fingerprints.put(JAR_ROOT, "11-20");
+        cache.validate(fingerprints);
+        Assert.assertNull(cache.get(DIR_ROOT, "1-2-3"));
+    }
+
+    @Test
+    public void validate_changedDirectory_allDirectoryEntriesAreDropped() {
+        String otherDirRoot = "file:/other/classes/";
+        VaadinTypeScanCache cache = new VaadinTypeScanCache(
+                new File(temporaryFolder.getRoot(), "cache"), "sig");
+        cache.put(DIR_ROOT, "1-2-3", matches("com.Foo", "a.Key"));
+        cache.put(otherDirRoot, "4-5-6", matches("com.Baz", "a.Key"));
+        cache.put(JAR_ROOT, "10-20", matches("lib.Bar", "a.Key"));
+
+        Map<String, String> fingerprints = new HashMap<>();
+        fingerprints.put(DIR_ROOT, "1-2-3");
+        fingerprints.put(otherDirRoot, "4-5-7");
+        fingerprints.put(JAR_ROOT, "10-20");
+        cache.validate(fingerprints);
+
+        Assert.assertNull(cache.get(DIR_ROOT, "1-2-3"));
+        Assert.assertNull(cache.get(otherDirRoot, "4-5-6"));
+        Assert.assertNotNull(cache.get(JAR_ROOT, "10-20"));
+    }
+
+    @Test
+    public void validate_removedDirectory_allDirectoryEntriesAreDropped() {
+        String otherDirRoot = "file:/other/classes/";
+        VaadinTypeScanCache cache = new VaadinTypeScanCache(
+                new File(temporaryFolder.getRoot(), "cache"), "sig");
+        cache.put(DIR_ROOT, "1-2-3", matches("com.Foo", "a.Key"));
+        cache.put(otherDirRoot, "4-5-6", matches("com.Baz", "a.Key"));
+
+        cache.validate(Collections.singletonMap(DIR_ROOT, "1-2-3"));
+
+        Assert.assertNull(cache.get(DIR_ROOT, "1-2-3"));
+    }
+
+    @Test
+    public void fingerprint_directoryChanges_fingerprintChanges()
+            throws IOException {
+        File dir = temporaryFolder.newFolder();
+        FileSystemResource root = new FileSystemResource(dir);
+        String empty = VaadinTypeScanCache.fingerprint(root);
+
+        Files.write(new File(dir, "Foo.class").toPath(), new byte[] { 1 });
+        String oneFile = VaadinTypeScanCache.fingerprint(root);
+        Assert.assertNotEquals(empty, oneFile);
+        Assert.assertEquals(oneFile, VaadinTypeScanCache.fingerprint(root));
+    }
+
+    @Test
+    public void scan_unchangedRoot_classesAreTakenFromCache()
+            throws IOException {
+        String pkg = VaadinTypeScannerTest.class.getPackage().getName();
+        String fakeClass = pkg + ".CachedOnly";
+        File file = new File(temporaryFolder.getRoot(), "cache");
+        VaadinTypeScanCache cache = new VaadinTypeScanCache(file, "sig");
+        scan(cache, pkg);
+        cache.store();
+
+        // Replace the cached classes of every root while keeping its
+        // fingerprint
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            properties.load(stream);
+        }
+        for (String root : properties.stringPropertyNames()) {
+            String value = properties.getProperty(root);
+            if (!root.startsWith("@")) {
+                properties.setProperty(root,
+                        value.substring(0, value.indexOf('|') + 1)
+                                + fakeClass + ":"
+                                + VaadinTypeScannerTest.Marker.class
+                                        .getName());
+            }
+        }
+        try (OutputStream stream = Files.newOutputStream(file.toPath())) {
+            properties.store(stream, null);
+        }
+
+        VaadinTypeScanCache loaded = new VaadinTypeScanCache(file, "sig");
+        loaded.load();
+        Set<String> marked = scan(loaded, pkg)
+                .find(Collections.singleton(pkg),
+                        Collections.singleton(
+                                VaadinTypeScannerTest.Marker.class.getName()))
+                .collect(Collectors.toSet());
+        Assert.assertEquals(Collections.singleton(fakeClass), marked);
+    }
+
+    private VaadinTypeIndex scan(VaadinTypeScanCache cache, String pkg) {
+        return new VaadinTypeScanner(new StandardEnvironment(),
+                new DefaultResourceLoader(), 1, cache).scan(
+                        Collections.singleton(pkg),
+                        Collections.singleton(
+                                VaadinTypeScannerTest.Marker.class),
+                        Collections.singleton(
+                                VaadinTypeScannerTest.Service.class));
+    }
+
+    private Map<String, Set<String>> matches(String className, String key) {
+        return Collections.singletonMap(className, Collections.singleton(key));
+    }
+}
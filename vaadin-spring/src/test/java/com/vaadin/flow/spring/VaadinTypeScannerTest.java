@@ -0,0 +1,271 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import com.vaadin.flow.router.HasErrorParameter;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.router.RouteNotFoundError;
+
+public class VaadinTypeScannerTest {
+
+    private static final String PACKAGE = VaadinTypeScannerTest.class
+            .getPackage().getName();
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marker {
+    }
+
+    public interface Service {
+    }
+
+    @Marker
+    public static class MarkedClass {
+    }
+
+    public static class ServiceImpl implements Service {
+    }
+
+    @Marker
+    public static abstract class MarkedAbstractService implements Service {
+    }
+
+    @Marker
+    public class InnerMarkedClass {
+    }
+
+    @Test
+    public void scan_annotationsAndTypes_classesAreIndexedByKey() {
+        VaadinTypeIndex index = scan();
+
+        Set<String> marked = find(index, Marker.class);
+        Assert.assertTrue(marked.contains(MarkedClass.class.getName()));
+        Assert.assertTrue(
+                marked.contains(MarkedAbstractService.class.getName()));
+        Assert.assertFalse(marked.contains(ServiceImpl.class.getName()));
+
+        Set<String> services = find(index, Service.class);
+        Assert.assertTrue(services.contains(ServiceImpl.class.getName()));
+        Assert.assertTrue(
+                services.contains(MarkedAbstractService.class.getName()));
+        Assert.assertFalse(services.contains(MarkedClass.class.getName()));
+    }
+
+    @Test
+    public void scan_nonStaticInnerClass_classIsNotIndexed() {
+        VaadinTypeIndex index = scan();
+
+        Assert.assertFalse(find(index, Marker.class)
+                .contains(InnerMarkedClass.class.getName()));
+    }
+
+    @Test
+    public void scan_parallel_sameClassesAsSequentialScan() {
+        VaadinTypeIndex sequential = scan();
+        VaadinTypeIndex parallel = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader(), 4)
+                        .scan(Arrays.asList(PACKAGE, "com.vaadin.flow.router"),
+                                Collections.singleton(Marker.class),
+                                Collections.singleton(Service.class));
+
+        Assert.assertEquals(find(sequential, Marker.class),
+                find(parallel, Marker.class));
+        Assert.assertEquals(find(sequential, Service.class),
+                find(parallel, Service.class));
+    }
+
+    @Test
+    public void createScanner_parallel_metadataIsReadWithoutCachingFactoryLock() {
+        VaadinTypeScanner parallel = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader(), 4);
+        VaadinTypeScanner sequential = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader());
+
+        Assert.assertFalse(getMetadataReaderFactory(
+                parallel) instanceof CachingMetadataReaderFactory);
+        Assert.assertTrue(getMetadataReaderFactory(
+                sequential) instanceof CachingMetadataReaderFactory);
+    }
+
+    @Test
+    public void scan_mappedClassScan_sameClassesAsSpringScan() {
+        List<String> packages = Arrays.asList(PACKAGE,
+                "com.vaadin.flow.router");
+        List<Class<? extends Annotation>> annotations = Arrays
+                .asList(Marker.class, Route.class);
+        List<Class<?>> types = Arrays.asList(Service.class,
+                HasErrorParameter.class);
+        VaadinTypeIndex spring = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader())
+                        .scan(packages, annotations, types);
+        VaadinTypeScanner scanner = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader());
+        scanner.setMappedClassScan(true);
+        VaadinTypeIndex mapped = scanner.scan(packages, annotations, types);
+
+        for (String key : VaadinTypeIndex.getKeys(annotations, types)) {
+            Set<String> expected = spring
+                    .find(packages, Collections.singleton(key))
+                    .collect(Collectors.toSet());
+            Assert.assertEquals(key, expected,
+                    mapped.find(packages, Collections.singleton(key))
+                            .collect(Collectors.toSet()));
+        }
+        Assert.assertTrue(mapped
+                .find(packages,
+                        Collections.singleton(HasErrorParameter.class.getName()))
+                .anyMatch(RouteNotFoundError.class.getName()::equals));
+    }
+
+    @Test
+    public void scan_mappedClassScanWithPathFilter_filteredClassesAreSkipped() {
+        VaadinTypeScanner scanner = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader());
+        scanner.setMappedClassScan(true);
+        String blocked = MarkedClass.class.getName().replace('.', '/');
+        scanner.setPathFilter(path -> !path.startsWith(blocked));
+        VaadinTypeIndex index = scanner.scan(Collections.singleton(PACKAGE),
+                Collections.singleton(Marker.class),
+                Collections.singleton(Service.class));
+
+        Set<String> marked = find(index, Marker.class);
+        Assert.assertFalse(marked.contains(MarkedClass.class.getName()));
+        Assert.assertTrue(
+                marked.contains(MarkedAbstractService.class.getName()));
+    }
+
+    @Test
+    public void scan_applicationStartup_stepIsRecordedPerPackage() {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(
+                10);
+        VaadinTypeScanner scanner = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader());
+        scanner.setApplicationStartup(startup);
+        scanner.scan(Arrays.asList(PACKAGE, "com.vaadin.flow.router"),
+                Collections.singleton(Marker.class),
+                Collections.singleton(Service.class));
+
+        List<StartupStep> steps = startup.getBufferedTimeline()
+                .getEvents().stream().map(TimelineEvent::getStartupStep)
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, steps.size());
+        StartupStep step = steps.stream()
+                .filter(candidate -> tag(candidate, "package")
+                        .equals(PACKAGE))
+                .findFirst().get();
+        Assert.assertEquals("vaadin.startup.scan", step.getName());
+        Assert.assertTrue(Integer.parseInt(tag(step, "resources")) >= Integer
+                .parseInt(tag(step, "classes")));
+        Assert.assertTrue(Integer.parseInt(tag(step, "classes")) >= 3);
+        Assert.assertTrue(Integer.parseInt(tag(step, "matches")) >= 4);
+    }
+
+    @Test
+    public void find_severalKeys_distinctClassNamesAreReturned() {
+        VaadinTypeIndex index = scan();
+
+        long count = index.find(Collections.singleton(PACKAGE),
+                Arrays.asList(Marker.class.getName(),
+                        Service.class.getName()))
+                .filter(MarkedAbstractService.class.getName()::equals)
+                .count();
+        Assert.assertEquals(1, count);
+    }
+
+    @Test
+    public void find_otherPackage_nothingIsReturned() {
+        VaadinTypeIndex index = scan();
+
+        Assert.assertEquals(0,
+                index.find(Collections.singleton(PACKAGE + ".scopes"),
+                        Collections.singleton(Marker.class.getName()))
+                        .count());
+    }
+
+    @Test
+    public void covers_subPackage_returnsTrue() {
+        VaadinTypeIndex index = scan();
+
+        Assert.assertTrue(
+                index.covers(Collections.singleton(PACKAGE + ".scopes")));
+        Assert.assertFalse(
+                index.covers(Collections.singleton("com.vaadin.flow")));
+    }
+
+    @Test
+    public void getRootPackages_subPackagesAreRemoved() {
+        Assert.assertEquals(
+                Collections.singleton("com.vaadin"),
+                VaadinTypeIndex.getRootPackages(Arrays.asList("com.vaadin",
+                        "com.vaadin.flow", "com.vaadin")));
+        Assert.assertEquals(Collections.singleton(""),
+                VaadinTypeIndex.getRootPackages(
+                        Arrays.asList("com.vaadin", "")));
+        Assert.assertEquals(2, VaadinTypeIndex
+                .getRootPackages(Arrays.asList("com.foo", "com.foobar"))
+                .size());
+    }
+
+    private VaadinTypeIndex scan() {
+        VaadinTypeScanner scanner = new VaadinTypeScanner(
+                new StandardEnvironment(), new DefaultResourceLoader());
+        return scanner.scan(Collections.singleton(PACKAGE),
+                Collections.singleton(Marker.class),
+                Collections.singleton(Service.class));
+    }
+
+    private MetadataReaderFactory getMetadataReaderFactory(
+            VaadinTypeScanner scanner) {
+        return scanner
+                .createScanner(Collections.singleton(Marker.class),
+                        Collections.singleton(Service.class), null)
+                .getMetadataReaderFactory();
+    }
+
+    private String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals(key)) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private Set<String> find(VaadinTypeIndex index, Class<?> key) {
+        return index
+                .find(Collections.singleton(PACKAGE),
+                        Collections.singleton(key.getName()))
+                .collect(Collectors.toSet());
+    }
+}
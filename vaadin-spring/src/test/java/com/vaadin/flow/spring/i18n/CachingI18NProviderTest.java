@@ -0,0 +1,136 @@
+/*
+ * Copyright 2000-2017 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.i18n;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.SerializationUtils;
+
+import com.vaadin.flow.i18n.I18NProvider;
+
+public class CachingI18NProviderTest {
+
+    private final AtomicInteger translated = new AtomicInteger();
+
+    private final I18NProvider provider = new I18NProvider() {
+
+        @Override
+        public List<Locale> getProvidedLocales() {
+            return Collections.singletonList(Locale.ENGLISH);
+        }
+
+        @Override
+        public String getTranslation(String key, Locale locale,
+                Object... params) {
+            translated.incrementAndGet();
+            if ("missing".equals(key)) {
+                return null;
+            }
+            return key + "-" + locale + (params.length == 0 ? ""
+                    : "-" + params[0]);
+        }
+    };
+
+    @Test
+    public void getTranslation_sameArguments_translatedOnce() {
+        CachingI18NProvider caching = new CachingI18NProvider(provider, 10);
+
+        Assert.assertEquals("foo-en", caching.getTranslation("foo",
+                Locale.ENGLISH));
+        Assert.assertEquals("foo-en", caching.getTranslation("foo",
+                Locale.ENGLISH));
+        Assert.assertEquals("foo-en-1",
+                caching.getTranslation("foo", Locale.ENGLISH, 1));
+        Assert.assertEquals("foo-en-1",
+                caching.getTranslation("foo", Locale.ENGLISH, 1));
+        Assert.assertEquals("foo-fr",
+                caching.getTranslation("foo", Locale.FRENCH));
+        Assert.assertNull(caching.getTranslation("missing", Locale.ENGLISH));
+        Assert.assertNull(caching.getTranslation("missing", Locale.ENGLISH));
+
+        Assert.assertEquals(4, translated.get());
+        Assert.assertEquals(7, caching.getRequestCount());
+        Assert.assertEquals(4, caching.getMissCount());
+        Assert.assertEquals(3.0 / 7, caching.getHitRate(), 0.0001);
+        Assert.assertEquals(provider.getProvidedLocales(),
+                caching.getProvidedLocales());
+    }
+
+    @Test
+    public void getTranslation_maxSizeExceeded_leastRecentlyUsedIsDropped() {
+        CachingI18NProvider caching = new CachingI18NProvider(provider, 2);
+
+        caching.getTranslation("foo", Locale.ENGLISH);
+        caching.getTranslation("bar", Locale.ENGLISH);
+        caching.getTranslation("foo", Locale.ENGLISH);
+        caching.getTranslation("baz", Locale.ENGLISH);
+        Assert.assertEquals(2, caching.getSize());
+
+        caching.getTranslation("foo", Locale.ENGLISH);
+        Assert.assertEquals(3, translated.get());
+        caching.getTranslation("bar", Locale.ENGLISH);
+        Assert.assertEquals(4, translated.get());
+    }
+
+    @Test
+    public void clear_translationsAreRequestedAgain() {
+        CachingI18NProvider caching = new CachingI18NProvider(provider, 10);
+        caching.getTranslation("foo", Locale.ENGLISH);
+
+        caching.clear();
+        caching.getTranslation("foo", Locale.ENGLISH);
+
+        Assert.assertEquals(2, translated.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_noMaxSize_throws() {
+        new CachingI18NProvider(provider, 0);
+    }
+
+    @Test
+    public void serialize_cacheIsRecreated() {
+        CachingI18NProvider caching = new CachingI18NProvider(
+                new TestProvider(), 10);
+        caching.getTranslation("foo", Locale.ENGLISH);
+
+        CachingI18NProvider deserialized = (CachingI18NProvider) SerializationUtils
+                .deserialize(SerializationUtils.serialize(caching));
+
+        Assert.assertEquals(0, deserialized.getSize());
+        Assert.assertEquals("foo", deserialized.getTranslation("foo",
+                Locale.ENGLISH));
+    }
+
+    private static class TestProvider implements I18NProvider {
+
+        @Override
+        public List<Locale> getProvidedLocales() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getTranslation(String key, Locale locale,
+                Object... params) {
+            return key;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.vaadin.flow.spring.instantiator;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -28,6 +29,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
@@ -38,11 +42,14 @@ import org.mockito.Mockito;
 import org.springframework.beans.BeanInstantiationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.stereotype.Component;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -59,6 +66,7 @@ import com.vaadin.flow.server.VaadinServletService;
 import com.vaadin.flow.server.frontend.FrontendUtils;
 import com.vaadin.flow.spring.SpringInstantiator;
 import com.vaadin.flow.spring.SpringServlet;
+import com.vaadin.flow.spring.i18n.CachingI18NProvider;
 
 @RunWith(SpringRunner.class)
 @Import(SpringInstantiatorTest.TestConfiguration.class)
@@ -83,6 +91,25 @@ public class SpringInstantiatorTest {
 
     }
 
+    public static class InjectedComponent extends Div {
+
+        private final ApplicationContext context;
+
+        @Autowired
+        private TestVaadinServiceInitListener listener;
+
+        private boolean initialized;
+
+        public InjectedComponent(ApplicationContext context) {
+            this.context = context;
+        }
+
+        @PostConstruct
+        private void init() {
+            initialized = true;
+        }
+    }
+
     @Component
     public static class TestVaadinServiceInitListener
             implements VaadinServiceInitListener {
@@ -93,6 +120,9 @@ public class SpringInstantiatorTest {
 
     }
 
+    public static class Greeter {
+    }
+
     @Component
     public static class I18NTestProvider implements I18NProvider {
 
@@ -165,6 +195,29 @@ public class SpringInstantiatorTest {
         Assert.assertNotEquals(component, anotherComponent);
     }
 
+    @Test
+    public void createComponent_dependenciesAreInjectedOnEveryCall()
+            throws ServletException {
+        Instantiator instantiator = getInstantiator(context);
+
+        InjectedComponent component = instantiator
+                .createComponent(InjectedComponent.class);
+        InjectedComponent anotherComponent = instantiator
+                .createComponent(InjectedComponent.class);
+
+        Assert.assertNotSame(component, anotherComponent);
+        for (InjectedComponent created : new InjectedComponent[] { component,
+                anotherComponent }) {
+            Assert.assertSame(context, created.context);
+            Assert.assertSame(
+                    context.getBean(TestVaadinServiceInitListener.class),
+                    created.listener);
+            Assert.assertTrue(created.initialized);
+        }
+        Assert.assertEquals(0,
+                context.getBeanNamesForType(InjectedComponent.class).length);
+    }
+
     public static VaadinServletService getService(ApplicationContext context,
             Properties configProperties) throws ServletException {
         return getService(context, configProperties, false);
@@ -281,7 +334,7 @@ public class SpringInstantiatorTest {
         ApplicationContext context = Mockito.mock(ApplicationContext.class);
         Mockito.when(context.getBeanNamesForType(Number.class))
                 .thenReturn(new String[] { "one" });
-        Mockito.when(context.getBean(Number.class)).thenReturn(0);
+        Mockito.when(context.getBean("one", Number.class)).thenReturn(0);
         SpringInstantiator instantiator = new SpringInstantiator(null, context);
 
         Number bean = instantiator.getOrCreate(Number.class);
@@ -303,4 +356,164 @@ public class SpringInstantiatorTest {
 
         Assert.assertEquals("string", bean);
     }
+
+    @Test
+    public void getOrCreateBean_calledTwice_beanNamesAreResolvedOnce() {
+        ApplicationContext context = Mockito.mock(ApplicationContext.class);
+        Mockito.when(context.getBeanNamesForType(Number.class))
+                .thenReturn(new String[] { "one" });
+        Mockito.when(context.getBean("one", Number.class)).thenReturn(0);
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+
+        instantiator.getOrCreate(Number.class);
+        instantiator.getOrCreate(Number.class);
+
+        Mockito.verify(context).getBeanNamesForType(Number.class);
+        Mockito.verify(context, Mockito.times(2)).getBean("one",
+                Number.class);
+    }
+
+    @Test
+    public void getOrCreateBean_beanDefinitionRegistered_beanNamesAreResolvedAgain() {
+        ApplicationContext context = Mockito.mock(ApplicationContext.class);
+        Mockito.when(context.getBeanNamesForType(Number.class))
+                .thenReturn(new String[] { "one" });
+        Mockito.when(context.getBean("one", Number.class)).thenReturn(0);
+        Mockito.when(context.getBeanDefinitionCount()).thenReturn(1, 1, 2);
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+
+        instantiator.getOrCreate(Number.class);
+        instantiator.getOrCreate(Number.class);
+        instantiator.getOrCreate(Number.class);
+
+        Mockito.verify(context, Mockito.times(2))
+                .getBeanNamesForType(Number.class);
+    }
+
+    @Test
+    public void getOrCreateBean_contextRefreshed_beanNamesAreResolvedAgain() {
+        ApplicationContext context = Mockito.mock(ApplicationContext.class);
+        Mockito.when(context.getBeanNamesForType(Number.class))
+                .thenReturn(new String[] { "one" });
+        Mockito.when(context.getBean("one", Number.class)).thenReturn(0);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        Mockito.when(context.getAutowireCapableBeanFactory())
+                .thenReturn(beanFactory);
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+
+        instantiator.getOrCreate(Number.class);
+        instantiator.getOrCreate(Number.class);
+        Mockito.verify(context).getBeanNamesForType(Number.class);
+
+        // A refreshable context replaces its bean factory
+        Mockito.when(context.getAutowireCapableBeanFactory())
+                .thenReturn(new DefaultListableBeanFactory());
+        instantiator.getOrCreate(Number.class);
+        Mockito.verify(context, Mockito.times(2))
+                .getBeanNamesForType(Number.class);
+    }
+
+    @Test
+    public void getOrCreateBean_singletonRegistered_singletonIsReturned() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.refresh();
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+        Assert.assertNotNull(instantiator.getOrCreate(Greeter.class));
+
+        Greeter greeter = new Greeter();
+        context.getBeanFactory().registerSingleton("greeter", greeter);
+
+        Assert.assertSame(greeter, instantiator.getOrCreate(Greeter.class));
+        context.close();
+    }
+
+    @Test
+    public void getOrCreateBean_singletonRegistryLocked_beanIsReturned()
+            throws Exception {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean("greeter", Greeter.class);
+        context.refresh();
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+        Greeter greeter = instantiator.getOrCreate(Greeter.class);
+
+        // Spring holds the singleton mutex while creating any singleton
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread creator = new Thread(() -> {
+            synchronized (context.getBeanFactory().getSingletonMutex()) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        creator.start();
+        locked.await();
+        try {
+            Assert.assertSame(greeter, CompletableFuture
+                    .supplyAsync(() -> instantiator.getOrCreate(Greeter.class))
+                    .get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            creator.join();
+            context.close();
+        }
+    }
+
+    @Test
+    public void getI18NProvider_singletonBean_resolvedOnce() {
+        ApplicationContext context = Mockito.mock(ApplicationContext.class);
+        I18NProvider provider = new I18NTestProvider();
+        Mockito.when(context.getBeanNamesForType(I18NProvider.class))
+                .thenReturn(new String[] { "i18n" });
+        Mockito.when(context.getBean("i18n", I18NProvider.class))
+                .thenReturn(provider);
+        Mockito.when(context.isSingleton("i18n")).thenReturn(true);
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+
+        Assert.assertSame(provider, instantiator.getI18NProvider());
+        Assert.assertSame(provider, instantiator.getI18NProvider());
+
+        Mockito.verify(context).getBeanNamesForType(I18NProvider.class);
+    }
+
+    @Test
+    public void getI18NProvider_prototypeBean_resolvedEveryTime() {
+        ApplicationContext context = Mockito.mock(ApplicationContext.class);
+        Mockito.when(context.getBeanNamesForType(I18NProvider.class))
+                .thenReturn(new String[] { "i18n" });
+        Mockito.when(context.getBean("i18n", I18NProvider.class))
+                .thenReturn(new I18NTestProvider());
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+
+        instantiator.getI18NProvider();
+        instantiator.getI18NProvider();
+
+        Mockito.verify(context, Mockito.times(2))
+                .getBeanNamesForType(I18NProvider.class);
+    }
+
+    @Test
+    public void getI18NProvider_cacheSizeSet_providerIsCaching() {
+        ApplicationContext context = Mockito.mock(ApplicationContext.class);
+        I18NProvider provider = new I18NTestProvider();
+        Mockito.when(context.getBeanNamesForType(I18NProvider.class))
+                .thenReturn(new String[] { "i18n" });
+        Mockito.when(context.getBean("i18n", I18NProvider.class))
+                .thenReturn(provider);
+        Mockito.when(context.isSingleton("i18n")).thenReturn(true);
+        Mockito.when(context.getEnvironment()).thenReturn(
+                new MockEnvironment().withProperty("vaadin.i18n-cache-size",
+                        "100"));
+        SpringInstantiator instantiator = new SpringInstantiator(null, context);
+
+        I18NProvider caching = instantiator.getI18NProvider();
+
+        Assert.assertTrue(caching instanceof CachingI18NProvider);
+        Assert.assertSame(provider,
+                ((CachingI18NProvider) caching).getProvider());
+        Assert.assertSame(caching, instantiator.getI18NProvider());
+    }
 }
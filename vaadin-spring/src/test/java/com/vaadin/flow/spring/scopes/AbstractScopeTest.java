@@ -15,8 +15,18 @@
  */
 package com.vaadin.flow.spring.scopes;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -32,6 +42,7 @@ import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.server.VaadinSessionState;
 import com.vaadin.flow.spring.SpringVaadinSession;
 
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -124,6 +135,64 @@ public abstract class AbstractScopeTest {
         Assert.assertEquals(1, count.get());
     }
 
+    @SuppressWarnings("rawtypes")
+    protected void get_concurrentReads_beanIsCreatedOnceWithoutLocking(
+            AbstractScope scope, VaadinSession session,
+            Runnable threadSetup) throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        doAnswer(invocation -> {
+            lock.lock();
+            return null;
+        }).when(session).lock();
+        doAnswer(invocation -> {
+            lock.unlock();
+            return null;
+        }).when(session).unlock();
+        when(session.hasLock()).then(
+                invocation -> lock.isHeldByCurrentThread());
+
+        AtomicInteger created = new AtomicInteger();
+        ObjectFactory factory = () -> {
+            created.incrementAndGet();
+            return new Object();
+        };
+        int threads = 8;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Set<Object>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    threadSetup.run();
+                    barrier.await();
+                    Set<Object> beans = Collections
+                            .newSetFromMap(new IdentityHashMap<>());
+                    for (int j = 0; j < 10000; j++) {
+                        beans.add(scope.get("foo", factory));
+                    }
+                    return beans;
+                }));
+            }
+            Set<Object> beans = Collections
+                    .newSetFromMap(new IdentityHashMap<>());
+            for (Future<Set<Object>> result : results) {
+                beans.addAll(result.get());
+            }
+            Assert.assertEquals(1, created.get());
+            Assert.assertEquals(1, beans.size());
+
+            // The store and the bean exist: reads do not lock anymore
+            Mockito.clearInvocations(session);
+            executor.submit(() -> {
+                threadSetup.run();
+                return scope.get("foo", factory);
+            }).get();
+            verify(session, Mockito.never()).lock();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     protected VaadinSession mockSession() {
         SpringVaadinSession session = Mockito.mock(TestSession.class,
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.server.Constants;
+import com.vaadin.flow.server.DefaultDeploymentConfiguration;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServlet;
+import com.vaadin.flow.server.VaadinServletService;
+
+public class BeanStoreTest {
+
+    private static final long CALLBACK_MILLIS = 200;
+
+    private BeanStore store;
+
+    private ExecutorService executor;
+
+    private final List<String> destroyed = Collections
+            .synchronizedList(new ArrayList<>());
+
+    private final CountDownLatch callbacksDone = new CountDownLatch(2);
+
+    @Before
+    public void setUp() {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_COMPATIBILITY_MODE,
+                Boolean.FALSE.toString());
+        VaadinService service = new VaadinServletService(new VaadinServlet(),
+                new DefaultDeploymentConfiguration(getClass(), initParameters));
+        store = new BeanStore(
+                new PassivatingBeanStoreTest.TestSession(service));
+        registerSlowBean("foo");
+        registerSlowBean("bar");
+    }
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void destroy_noExecutor_callbacksRunWhileDestroying() {
+        long duration = destroy();
+
+        Assert.assertTrue(duration >= 2 * CALLBACK_MILLIS);
+        Assert.assertEquals(2, destroyed.size());
+    }
+
+    @Test
+    public void destroy_executor_storeIsDetachedBeforeCallbacksRun()
+            throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor();
+        store.setDestructionExecutor(executor);
+
+        long duration = destroy();
+
+        Assert.assertTrue(duration < CALLBACK_MILLIS);
+        Assert.assertTrue(store.isDestroyed());
+        Assert.assertTrue(store.getObjects().isEmpty());
+        Assert.assertTrue(callbacksDone.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, destroyed.size());
+    }
+
+    @Test
+    public void destroy_executorAndFailingCallback_otherCallbacksRunAndFailureIsCounted()
+            throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor();
+        store.setDestructionExecutor(executor);
+        VaadinScopesMetrics.ScopeMetrics metrics = new VaadinScopesMetrics(0)
+                .getScopeMetrics("test");
+        store.setMetrics(metrics);
+        store.get("failing", Object::new);
+        store.registerDestructionCallback("failing", () -> {
+            throw new IllegalStateException("Expected");
+        });
+
+        destroy();
+
+        Assert.assertTrue(callbacksDone.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, metrics.getDestructionFailures());
+        Assert.assertEquals(1, metrics.getDestroyedStores());
+    }
+
+    private void registerSlowBean(String name) {
+        store.get(name, Object::new);
+        store.registerDestructionCallback(name, () -> {
+            try {
+                Thread.sleep(CALLBACK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            destroyed.add(name);
+            callbacksDone.countDown();
+        });
+    }
+
+    private long destroy() {
+        long start = System.nanoTime();
+        store.destroy();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.SerializationUtils;
+
+public class CopyOnWriteArrayMapTest {
+
+    @Test
+    public void putGetRemove_sameAsHashMap() {
+        CopyOnWriteArrayMap<String> map = new CopyOnWriteArrayMap<>();
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String key = "bean" + random.nextInt(40);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "value" + i;
+                Assert.assertEquals(expected.put(key, value),
+                        map.put(key, value));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < 40; i++) {
+            Assert.assertEquals(expected.get("bean" + i), map.get("bean" + i));
+            Assert.assertEquals(expected.containsKey("bean" + i),
+                    map.containsKey("bean" + i));
+        }
+        Assert.assertEquals(expected, map);
+    }
+
+    @Test
+    public void iteratorRemove_iterationContinuesOnSnapshot() {
+        CopyOnWriteArrayMap<String> map = new CopyOnWriteArrayMap<>();
+        for (int i = 0; i < 5; i++) {
+            map.put("bean" + i, "value" + i);
+        }
+
+        int iterated = 0;
+        Iterator<Map.Entry<String, String>> iterator = map.entrySet()
+                .iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            iterated++;
+            if (!entry.getKey().equals("bean3")) {
+                iterator.remove();
+            }
+        }
+
+        Assert.assertEquals(5, iterated);
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals("value3", map.get("bean3"));
+    }
+
+    @Test
+    public void clear_noValuesAreLeft() {
+        CopyOnWriteArrayMap<String> map = new CopyOnWriteArrayMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put("bean" + i, "value");
+        }
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get("bean1"));
+        Assert.assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serialize_valuesAreKept() {
+        CopyOnWriteArrayMap<String> map = new CopyOnWriteArrayMap<>();
+        map.put("one", "1");
+        map.put("two", "2");
+
+        Map<String, String> copy = (Map<String, String>) SerializationUtils
+                .deserialize(SerializationUtils.serialize(map));
+
+        Assert.assertEquals(map, copy);
+        Assert.assertNull(copy.get("three"));
+    }
+}
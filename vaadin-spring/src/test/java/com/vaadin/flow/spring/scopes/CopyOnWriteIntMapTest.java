@@ -0,0 +1,90 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CopyOnWriteIntMapTest {
+
+    @Test
+    public void putGetRemove_sameAsHashMap() {
+        CopyOnWriteIntMap<String> map = new CopyOnWriteIntMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(200) - 20;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "value" + i;
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        for (int key = -20; key < 180; key++) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+        Assert.assertEquals(new HashSet<>(expected.values()),
+                new HashSet<>(map.values()));
+    }
+
+    @Test
+    public void clear_noValuesAreLeft() {
+        CopyOnWriteIntMap<String> map = new CopyOnWriteIntMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "value");
+        }
+
+        map.clear();
+        Assert.assertEquals(0, map.size());
+        Assert.assertNull(map.get(1));
+        Assert.assertTrue(map.values().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serialize_valuesAreKept()
+            throws IOException, ClassNotFoundException {
+        CopyOnWriteIntMap<String> map = new CopyOnWriteIntMap<>();
+        map.put(1, "one");
+        map.put(17, "seventeen");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        CopyOnWriteIntMap<String> copy;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (CopyOnWriteIntMap<String>) in.readObject();
+        }
+        Assert.assertEquals("one", copy.get(1));
+        Assert.assertEquals("seventeen", copy.get(17));
+        Assert.assertNull(copy.get(2));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import javax.annotation.PostConstruct;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.SerializationUtils;
+
+import com.vaadin.flow.component.Text;
+import com.vaadin.flow.server.Constants;
+import com.vaadin.flow.server.DefaultDeploymentConfiguration;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServlet;
+import com.vaadin.flow.server.VaadinServletService;
+import com.vaadin.flow.server.VaadinSession;
+
+public class PassivatingBeanStoreTest {
+
+    private static final String NAME = "scopedTarget.foo";
+
+    private PassivatingBeanStore store;
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    public static class TestSession extends VaadinSession {
+        public TestSession(VaadinService service) {
+            super(service);
+        }
+
+        @Override
+        public boolean hasLock() {
+            return true;
+        }
+    }
+
+    public static class Service {
+    }
+
+    public static class InjectedBean implements Serializable {
+        private final List<String> values = new ArrayList<>();
+
+        @Autowired
+        private transient Service service;
+
+        private transient boolean initialized;
+
+        @PostConstruct
+        private void init() {
+            initialized = true;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_COMPATIBILITY_MODE,
+                Boolean.FALSE.toString());
+        VaadinService service = new VaadinServletService(new VaadinServlet(),
+                new DefaultDeploymentConfiguration(getClass(), initParameters));
+        store = new PassivatingBeanStore(new TestSession(service));
+        store.setPassivation(new UIScopePassivation(1000, null, null));
+    }
+
+    @Test
+    public void passivate_idleScopedTarget_beanIsRestoredOnAccess() {
+        List<String> bean = get(NAME);
+        bean.add("bar");
+        long now = System.currentTimeMillis();
+        Assert.assertFalse(store.isIdle(now));
+        Assert.assertTrue(store.isIdle(now + 1000));
+
+        store.passivate();
+
+        Assert.assertTrue(store.getObjects().isEmpty());
+        Assert.assertEquals(Collections.singleton(NAME),
+                store.getPassivatedNames());
+
+        List<String> restored = get(NAME);
+        Assert.assertNotSame(bean, restored);
+        Assert.assertEquals(Collections.singletonList("bar"), restored);
+        Assert.assertSame(restored, get(NAME));
+        Assert.assertEquals(1, created.get());
+        Assert.assertTrue(store.getPassivatedNames().isEmpty());
+    }
+
+    @Test
+    public void passivate_notPassivatableBeans_beansAreKept() {
+        get("foo");
+        get("scopedTarget.bar");
+        store.registerDestructionCallback("scopedTarget.bar", () -> {
+        });
+        store.get("scopedTarget.baz", Object::new);
+        List<Object> component = get("scopedTarget.component");
+        component.add(new Text("text"));
+
+        store.passivate();
+
+        Assert.assertEquals(4, store.getObjects().size());
+        Assert.assertTrue(store.getPassivatedNames().isEmpty());
+    }
+
+    @Test
+    public void remove_passivatedBean_newBeanIsCreated() {
+        get(NAME).add("bar");
+        store.passivate();
+
+        store.remove(NAME);
+
+        Assert.assertTrue(store.getPassivatedNames().isEmpty());
+        Assert.assertTrue(get(NAME).isEmpty());
+        Assert.assertEquals(2, created.get());
+    }
+
+    @Test
+    public void serialize_passivatedBean_beanIsRestoredAfterDeserialization() {
+        get(NAME).add("bar");
+        store.passivate();
+
+        PassivatingBeanStore deserialized = (PassivatingBeanStore) SerializationUtils
+                .deserialize(SerializationUtils.serialize(store));
+
+        Assert.assertEquals(Collections.singletonList("bar"),
+                deserialized.get(NAME, () -> {
+                    throw new AssertionError("The bean should be restored");
+                }));
+    }
+
+    @Test
+    public void passivate_injectedBean_beanIsAutowiredButNotInitializedOnRestore() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(Service.class);
+        context.refresh();
+        AutowireCapableBeanFactory beanFactory = context
+                .getAutowireCapableBeanFactory();
+        store.setPassivation(new UIScopePassivation(1000, null, beanFactory));
+        InjectedBean bean = (InjectedBean) store.get(NAME,
+                () -> beanFactory.createBean(InjectedBean.class));
+        bean.values.add("bar");
+
+        store.passivate();
+
+        InjectedBean restored = (InjectedBean) store.get(NAME, () -> {
+            throw new AssertionError("The bean should be restored");
+        });
+        Assert.assertNotSame(bean, restored);
+        Assert.assertEquals(Collections.singletonList("bar"), restored.values);
+        Assert.assertSame(context.getBean(Service.class), restored.service);
+        Assert.assertFalse(restored.initialized);
+        context.close();
+    }
+
+    @Test
+    public void passivate_beanReadDuringSerialization_liveBeanIsKept() {
+        List<String> bean = get(NAME);
+        bean.add("bar");
+        List<String> written = new ArrayList<>();
+        store.setPassivation(new UIScopePassivation(1000,
+                () -> new BeanPassivationStore() {
+                    @Override
+                    public void write(String key, byte[] data) {
+                        // A reader without the session lock
+                        get(NAME);
+                        written.add(key);
+                    }
+
+                    @Override
+                    public byte[] read(String key) {
+                        return null;
+                    }
+
+                    @Override
+                    public void remove(String key) {
+                        written.remove(key);
+                    }
+                }, null));
+
+        store.passivate();
+
+        Assert.assertTrue(store.getPassivatedNames().isEmpty());
+        Assert.assertTrue(written.isEmpty());
+        Assert.assertSame(bean, get(NAME));
+        Assert.assertEquals(1, created.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> get(String name) {
+        ObjectFactory<List<T>> factory = () -> {
+            created.incrementAndGet();
+            return new ArrayList<>();
+        };
+        return (List<T>) store.get(name, factory);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.flow.server.VaadinSession;
+
+public class RetainedSizeEstimatorTest {
+
+    private final RetainedSizeEstimator estimator = new RetainedSizeEstimator(
+            32, 10000);
+
+    private static class Holder {
+        private final Object first;
+        private final Object second;
+        private final long counter = 0;
+
+        private Holder(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * A collection loading its elements on first access, like a lazy JPA
+     * collection.
+     */
+    private static class LazyList extends AbstractList<Object> {
+        private final byte[] data = new byte[1000];
+
+        @Override
+        public Object get(int index) {
+            throw new IllegalStateException("Not loaded");
+        }
+
+        @Override
+        public int size() {
+            throw new IllegalStateException("Not loaded");
+        }
+    }
+
+    @Test
+    public void estimate_fieldsAreWalkedAndSharedObjectsCountedOnce() {
+        byte[] data = new byte[1000];
+        Holder holder = new Holder(data, data);
+
+        // header, 2 references and a long, then the array once
+        Assert.assertEquals(32 + 1016, estimate(holder));
+    }
+
+    @Test
+    public void estimate_visitedObjectsAreNotCountedAgain() {
+        byte[] data = new byte[1000];
+        Set<Object> visited = newVisitedSet();
+
+        Assert.assertEquals(32 + 1016,
+                estimator.estimate(new Holder(data, null), visited));
+        Assert.assertEquals(32,
+                estimator.estimate(new Holder(data, null), visited));
+    }
+
+    @Test
+    public void estimate_largeCollectionsAreSampled() {
+        List<Object> list = new ArrayList<>();
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            list.add(new byte[100]);
+            map.put(new byte[8], new byte[100]);
+        }
+        long expectedElements = 10000L * 120;
+        long listSize = estimate(list);
+        Assert.assertTrue(listSize > expectedElements);
+        Assert.assertTrue(listSize < expectedElements * 2);
+
+        long expectedEntries = 10000L * (120 + 24 + 32);
+        long mapSize = estimate(map);
+        Assert.assertTrue(mapSize > expectedEntries);
+        Assert.assertTrue(mapSize < expectedEntries * 2);
+    }
+
+    @Test
+    public void estimate_nonJdkCollection_collectionIsWalkedByFields() {
+        // header, the modCount of AbstractList and a reference, then the
+        // array
+        Assert.assertEquals(24 + 1016, estimate(new LazyList()));
+    }
+
+    @Test
+    public void estimate_sessionIsNotWalked() {
+        VaadinSession session = Mockito.mock(VaadinSession.class);
+
+        Assert.assertEquals(32, estimate(new Holder(session, null)));
+        Assert.assertEquals(0, estimate(session));
+    }
+
+    private long estimate(Object object) {
+        return estimator.estimate(object, newVisitedSet());
+    }
+
+    private static Set<Object> newVisitedSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2000-2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.spring.scopes;
+
+import javax.servlet.ServletContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.HasElement;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.router.Location;
+import com.vaadin.flow.router.Router;
+import com.vaadin.flow.server.Constants;
+import com.vaadin.flow.server.DefaultDeploymentConfiguration;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinServletContext;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.spring.annotation.RouteScopeOwner;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@NotThreadSafe
+public class VaadinRouteScopeTest extends AbstractScopeTest {
+
+    private UI ui;
+
+    private static class Layout extends Div {
+    }
+
+    private static class ViewA extends Div {
+    }
+
+    private static class ViewB extends Div {
+    }
+
+    @RouteScopeOwner(Layout.class)
+    private static class LayoutBean {
+    }
+
+    @Before
+    public void setUp() {
+        VaadinSession.setCurrent(null);
+        UI.setCurrent(null);
+        ui = null;
+    }
+
+    @After
+    public void clearUI() {
+        ui = null;
+    }
+
+    @Test
+    public void get_navigationTargetIsEntered_objectIsStored() {
+        VaadinRouteScope scope = new VaadinRouteScope();
+
+        mockUI();
+        enter(ViewA.class, Layout.class);
+        get_currentScopeIsSet_objectIsStored(scope);
+    }
+
+    @Test
+    public void remove_navigationTargetIsEntered_objectIsRemoved() {
+        VaadinRouteScope scope = new VaadinRouteScope();
+
+        mockUI();
+        enter(ViewA.class, Layout.class);
+        remove_currentScopeIsSet_objectIsStored(scope);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void get_noNavigationTarget_throwException() {
+        mockUI();
+
+        getScope().get("foo", Object::new);
+    }
+
+    @Test
+    public void navigate_targetIsLeft_beansAreDestroyed() {
+        VaadinRouteScope scope = new VaadinRouteScope();
+        UI ui = mockUI();
+        AtomicInteger destroyed = new AtomicInteger();
+
+        enter(ViewA.class, Layout.class);
+        Object bean = scope.get("foo", Object::new);
+        scope.registerDestructionCallback("foo", destroyed::incrementAndGet);
+        navigated(ViewA.class, Layout.class);
+
+        enter(ViewA.class, Layout.class);
+        Assert.assertSame(bean, scope.get("foo", Object::new));
+        navigated(ViewA.class, Layout.class);
+        Assert.assertEquals(0, destroyed.get());
+
+        enter(ViewB.class, Layout.class);
+        navigated(ViewB.class, Layout.class);
+
+        Assert.assertEquals(1, destroyed.get());
+
+        enter(ViewB.class, Layout.class);
+        Assert.assertNotSame(bean, scope.get("foo", Object::new));
+
+        ComponentUtil.onComponentDetach(ui);
+        Assert.assertNull(
+                ComponentUtil.getData(ui, VaadinRouteScope.RouteStores.class));
+    }
+
+    @Test
+    public void navigate_ownerIsKept_beansAreKept() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("layoutBean",
+                new RootBeanDefinition(LayoutBean.class));
+        VaadinRouteScope scope = new VaadinRouteScope();
+        scope.postProcessBeanFactory(beanFactory);
+        mockUI();
+        AtomicInteger destroyed = new AtomicInteger();
+
+        enter(ViewA.class, Layout.class);
+        Object bean = scope.get("layoutBean", LayoutBean::new);
+        scope.registerDestructionCallback("layoutBean",
+                destroyed::incrementAndGet);
+        navigated(ViewA.class, Layout.class);
+
+        enter(ViewB.class, Layout.class);
+        Assert.assertSame(bean, scope.get("layoutBean", LayoutBean::new));
+        navigated(ViewB.class, Layout.class);
+
+        Assert.assertEquals(0, destroyed.get());
+
+        enter(ViewA.class);
+        navigated(ViewA.class);
+
+        Assert.assertEquals(1, destroyed.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void get_ownerNotInChain_throwException() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("layoutBean",
+                new RootBeanDefinition(LayoutBean.class));
+        VaadinRouteScope scope = new VaadinRouteScope();
+        scope.postProcessBeanFactory(beanFactory);
+        mockUI();
+
+        enter(ViewA.class);
+        scope.get("layoutBean", LayoutBean::new);
+    }
+
+    @Test
+    public void get_concurrentReads_beanIsCreatedOnceWithoutLocking()
+            throws Exception {
+        UI ui = mockUI();
+        VaadinSession session = ui.getSession();
+        ui.getInternals().showRouteTarget(new Location(""), "", new ViewA(),
+                Collections.emptyList());
+
+        get_concurrentReads_beanIsCreatedOnceWithoutLocking(
+                new VaadinRouteScope(), session, () -> {
+                    VaadinSession.setCurrent(session);
+                    UI.setCurrent(ui);
+                });
+    }
+
+    @Test
+    public void get_navigationTargetIsEntered_storeIsReadHoldingLock() {
+        VaadinRouteScope scope = new VaadinRouteScope();
+        UI ui = mockUI();
+        VaadinSession session = ui.getSession();
+
+        enter(ViewA.class, Layout.class);
+        Object bean = scope.get("foo", Object::new);
+        Mockito.clearInvocations(session);
+
+        Assert.assertSame(bean, scope.get("foo", Object::new));
+        Mockito.verify(session).lock();
+    }
+
+    @Override
+    protected Scope getScope() {
+        return new VaadinRouteScope();
+    }
+
+    @SafeVarargs
+    private final void enter(Class<? extends HasElement>... chain) {
+        VaadinRouteScope.getRouteStores(ui).enter(Arrays.asList(chain));
+    }
+
+    @SafeVarargs
+    private final void navigated(Class<? extends HasElement>... chain) {
+        VaadinRouteScope.getRouteStores(ui).navigated(Arrays.asList(chain));
+    }
+
+    private UI mockUI() {
+        VaadinSession session = mockSession();
+
+        Router router = mock(Router.class);
+        VaadinService service = session.getService();
+        when(service.getRouter()).thenReturn(router);
+
+        Properties initParameters = new Properties();
+        initParameters.put(Constants.SERVLET_PARAMETER_COMPATIBILITY_MODE,
+                Boolean.FALSE.toString());
+        when(service.getDeploymentConfiguration())
+                .thenReturn(new DefaultDeploymentConfiguration(getClass(),
+                        initParameters));
+
+        when(service.getMainDivId(Mockito.any(), Mockito.any()))
+                .thenReturn(" - ");
+
+        final Map<String, Object> attributeMap = new HashMap<>();
+
+        ServletContext servletContext = Mockito.mock(ServletContext.class);
+        Mockito.when(servletContext.getAttribute(Mockito.anyString()))
+                .then(invocationOnMock -> attributeMap
+                        .get(invocationOnMock.getArguments()[0].toString()));
+        Mockito.doAnswer(invocationOnMock -> attributeMap.put(
+                invocationOnMock.getArguments()[0].toString(),
+                invocationOnMock.getArguments()[1])).when(servletContext)
+                .setAttribute(Mockito.anyString(), Mockito.any());
+
+        VaadinServletContext context = new VaadinServletContext(servletContext);
+        Mockito.when(service.getContext()).thenReturn(context);
+
+        UI ui = new UI();
+        ui.getInternals().setSession(session);
+        ui.doInit(null, 1);
+
+        UI.setCurrent(ui);
+
+        // prevent UI from being GCed.
+        this.ui = ui;
+        return ui;
+    }
+}
@@ -20,7 +20,11 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -28,6 +32,10 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.Scope;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
 
 import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.spring.SpringVaadinSession;
@@ -37,6 +45,10 @@ import net.jcip.annotations.NotThreadSafe;
 @NotThreadSafe
 public class VaadinSessionScopeTest extends AbstractScopeTest {
 
+    @com.vaadin.flow.spring.annotation.VaadinSessionScope(evictable = true)
+    private static class EvictableBean {
+    }
+
     @Before
     public void tearDown() {
         VaadinSession.setCurrent(null);
@@ -92,7 +104,7 @@ public class VaadinSessionScopeTest extends AbstractScopeTest {
         springSession.fireSessionDestroy();
 
         Assert.assertEquals(1, count.get());
-        Assert.assertNull(session.getAttribute(BeanStore.class));
+        Assert.assertNull(session.getAttribute(SessionScopeStorage.class));
 
         // Destruction callbacks are not called anymore (they are removed)
         scope.getBeanStore().destroy();
@@ -104,6 +116,120 @@ public class VaadinSessionScopeTest extends AbstractScopeTest {
         verify(factory, times(2)).getObject();
     }
 
+    @Test
+    public void get_concurrentReads_beanIsCreatedOnceWithoutLocking()
+            throws Exception {
+        VaadinSession session = mockSession();
+
+        get_concurrentReads_beanIsCreatedOnceWithoutLocking(
+                new VaadinSessionScope(), session,
+                () -> VaadinSession.setCurrent(session));
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void destroy_asyncDestruction_laterCallbacksRunInCallingThread() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment().withProperty(
+                        "vaadin.scope-async-destruction", "true"));
+        VaadinSessionScope scope = new VaadinSessionScope();
+        scope.postProcessBeanFactory(beanFactory);
+        VaadinSession session = mockSession();
+        SpringVaadinSession springSession = (SpringVaadinSession) session;
+        doCallRealMethod().when(springSession)
+                .addDestroyListener(Mockito.any());
+        doCallRealMethod().when(springSession).fireSessionDestroy();
+
+        ObjectFactory factory = Mockito.mock(ObjectFactory.class);
+        when(factory.getObject()).thenReturn(new Object());
+        scope.get("foo", factory);
+        AtomicReference<Thread> callbackThread = new AtomicReference<>();
+        scope.registerDestructionCallback("foo",
+                () -> callbackThread.set(Thread.currentThread()));
+
+        scope.destroy();
+        springSession.fireSessionDestroy();
+
+        Assert.assertSame(Thread.currentThread(), callbackThread.get());
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void postProcessBeanFactory_metricsEnabled_storeLifecycleIsRecorded() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment().withProperty("vaadin.scope-metrics",
+                        "true"));
+        VaadinSessionScope scope = new VaadinSessionScope();
+        scope.postProcessBeanFactory(beanFactory);
+        VaadinSession session = mockSession();
+        SpringVaadinSession springSession = (SpringVaadinSession) session;
+        doCallRealMethod().when(springSession)
+                .addDestroyListener(Mockito.any());
+        doCallRealMethod().when(springSession).fireSessionDestroy();
+
+        ObjectFactory factory = Mockito.mock(ObjectFactory.class);
+        when(factory.getObject()).thenReturn(new Object());
+        scope.get("foo", factory);
+        scope.get("foo", factory);
+        scope.registerDestructionCallback("foo", () -> {
+            throw new IllegalStateException();
+        });
+        springSession.fireSessionDestroy();
+
+        VaadinScopesMetrics metrics = beanFactory
+                .getBean(VaadinScopesMetrics.class);
+        VaadinScopesMetrics.ScopeMetrics scopeMetrics = metrics
+                .getScopeMetrics()
+                .get(VaadinSessionScope.VAADIN_SESSION_SCOPE_NAME);
+        Assert.assertEquals(1, scopeMetrics.getCreatedStores());
+        Assert.assertEquals(1, scopeMetrics.getDestroyedStores());
+        Assert.assertEquals(1, scopeMetrics.getDestructionFailures());
+        Assert.assertEquals(1,
+                scopeMetrics.getDestructionTime().getCount());
+        Assert.assertEquals(1,
+                metrics.getInstantiationTimes().get("foo").getCount());
+    }
+
+    @Test
+    public void get_maxEvictableBeansExceeded_leastRecentlyUsedIsEvicted() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment().withProperty(
+                        "vaadin.max-evictable-session-beans", "2"));
+        for (String name : new String[] { "a", "b", "c" }) {
+            beanFactory.registerBeanDefinition(name,
+                    new RootBeanDefinition(EvictableBean.class));
+        }
+        VaadinSessionScope scope = new VaadinSessionScope();
+        scope.postProcessBeanFactory(beanFactory);
+        mockSession();
+        List<String> destroyed = new ArrayList<>();
+
+        Object a = scope.get("a", EvictableBean::new);
+        scope.registerDestructionCallback("a", () -> destroyed.add("a"));
+        Object b = scope.get("b", EvictableBean::new);
+        scope.registerDestructionCallback("b", () -> destroyed.add("b"));
+        Object notEvictable = scope.get("foo", Object::new);
+        Assert.assertSame(a, scope.get("a", EvictableBean::new));
+
+        scope.get("c", EvictableBean::new);
+
+        Assert.assertEquals(Arrays.asList("b"), destroyed);
+        Assert.assertSame(a, scope.get("a", EvictableBean::new));
+        Assert.assertSame(notEvictable, scope.get("foo", Object::new));
+
+        Assert.assertNotSame(b, scope.get("b", EvictableBean::new));
+        Assert.assertEquals(Arrays.asList("b"), destroyed);
+        Assert.assertEquals(3, scope.getBeanStore().getObjects().size());
+        Assert.assertFalse(
+                scope.getBeanStore().getObjects().containsKey("c"));
+    }
+
     @Override
     protected Scope getScope() {
         return new VaadinSessionScope();
@@ -16,7 +16,10 @@
 package com.vaadin.flow.spring.scopes;
 
 import javax.servlet.ServletContext;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -29,6 +32,9 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.Scope;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
 
 import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.UI;
@@ -137,7 +143,7 @@ public class VaadinUIScopeTest extends AbstractScopeTest {
         when(factory.getObject()).thenReturn(object);
         scope.get("foo", factory);
 
-        String attribute = VaadinUIScope.class.getName() + "$UIStoreWrapper";
+        String attribute = SessionScopeStorage.class.getName();
 
         // self control - the attribute name is used by the implementation
         Assert.assertNotNull(springSession.getAttribute(attribute));
@@ -187,6 +193,162 @@ public class VaadinUIScopeTest extends AbstractScopeTest {
         verify(factory, times(2)).getObject();
     }
 
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void get_otherUIInSameThread_otherBeanIsReturned() {
+        UI ui = mockUI();
+        VaadinUIScope scope = new VaadinUIScope();
+
+        ObjectFactory factory = Mockito.mock(ObjectFactory.class);
+        when(factory.getObject()).then(invocation -> new Object());
+        Object first = scope.get("foo", factory);
+        Assert.assertSame(first, scope.get("foo", factory));
+
+        UI otherUI = new UI();
+        otherUI.getInternals().setSession(ui.getSession());
+        otherUI.doInit(null, 2);
+        UI.setCurrent(otherUI);
+        Object other = scope.get("foo", factory);
+        Assert.assertNotSame(first, other);
+        Assert.assertSame(other, scope.get("foo", factory));
+
+        UI.setCurrent(ui);
+        Assert.assertSame(first, scope.get("foo", factory));
+        verify(factory, times(2)).getObject();
+    }
+
+    @Test
+    public void get_concurrentReads_beanIsCreatedOnceWithoutLocking()
+            throws Exception {
+        UI ui = mockUI();
+        VaadinSession session = ui.getSession();
+
+        get_concurrentReads_beanIsCreatedOnceWithoutLocking(
+                new VaadinUIScope(), session, () -> {
+                    VaadinSession.setCurrent(session);
+                    UI.setCurrent(ui);
+                });
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void postProcessBeanFactory_footprintEnabled_beansAreReported() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment().withProperty("vaadin.scope-footprint",
+                        "true"));
+        VaadinSessionScope sessionScope = new VaadinSessionScope();
+        sessionScope.postProcessBeanFactory(beanFactory);
+        VaadinUIScope scope = new VaadinUIScope();
+        scope.postProcessBeanFactory(beanFactory);
+
+        mockUI();
+        ObjectFactory factory = Mockito.mock(ObjectFactory.class);
+        when(factory.getObject()).then(invocation -> new byte[1000]);
+        scope.get("foo", factory);
+        scope.get("bar", factory);
+        sessionScope.get("baz", factory);
+
+        VaadinScopesFootprint footprint = beanFactory
+                .getBean(VaadinScopesFootprint.class);
+        Map<String, Integer> expectedCounts = new HashMap<>();
+        expectedCounts.put(VaadinSessionScope.VAADIN_SESSION_SCOPE_NAME, 1);
+        expectedCounts.put(VaadinUIScope.VAADIN_UI_SCOPE_NAME, 2);
+        Assert.assertEquals(expectedCounts, footprint.getBeanCountByScope());
+        Assert.assertEquals(Collections.singletonList(3),
+                new ArrayList<>(footprint.getBeanCountBySession().values()));
+
+        List<VaadinScopesFootprint.StoreFootprint> stores = footprint
+                .getStoreFootprints();
+        Assert.assertEquals(2, stores.size());
+        VaadinScopesFootprint.StoreFootprint uiStore = stores.get(0);
+        Assert.assertEquals(1, uiStore.getUIId());
+        Assert.assertEquals(2, uiStore.getBeanCount());
+        Assert.assertEquals(2 * 1016, uiStore.getRetainedSize());
+        Assert.assertEquals(-1, stores.get(1).getUIId());
+
+        List<VaadinScopesFootprint.BeanFootprint> heaviest = footprint
+                .getHeaviestBeans(2);
+        Assert.assertEquals(2, heaviest.size());
+        Assert.assertEquals(1016, heaviest.get(0).getRetainedSize());
+        Assert.assertEquals(1, heaviest.get(0).getInstances());
+
+        ComponentUtil.onComponentDetach(ui);
+        Assert.assertEquals(Collections.singletonMap(
+                VaadinSessionScope.VAADIN_SESSION_SCOPE_NAME, 1),
+                footprint.getBeanCountByScope());
+    }
+
+    @Test
+    public void postProcessBeanFactory_footprintEnabled_singletonsAreNotCounted() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment().withProperty("vaadin.scope-footprint",
+                        "true"));
+        VaadinUIScope scope = new VaadinUIScope();
+        scope.postProcessBeanFactory(beanFactory);
+        byte[] service = new byte[100000];
+        beanFactory.registerSingleton("service", service);
+
+        mockUI();
+        scope.get("foo", () -> new ServiceHolder(service));
+
+        VaadinScopesFootprint footprint = beanFactory
+                .getBean(VaadinScopesFootprint.class);
+        List<VaadinScopesFootprint.StoreFootprint> stores = footprint
+                .getStoreFootprints();
+        Assert.assertEquals(1, stores.size());
+        // header and the reference to the singleton only
+        Assert.assertEquals(16, stores.get(0).getRetainedSize());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void postProcessBeanFactory_footprintEnabled_failingBeanIsReportedEmpty() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment().withProperty("vaadin.scope-footprint",
+                        "true"));
+        VaadinUIScope scope = new VaadinUIScope();
+        scope.postProcessBeanFactory(beanFactory);
+        List<Object> failing = Mockito.mock(List.class);
+        when(failing.size()).thenThrow(new IllegalStateException());
+
+        mockUI();
+        scope.get("failing", () -> Collections.unmodifiableList(failing));
+        scope.get("foo", () -> new byte[1000]);
+
+        VaadinScopesFootprint footprint = beanFactory
+                .getBean(VaadinScopesFootprint.class);
+        Map<String, Long> sizes = footprint.getStoreFootprints().get(0)
+                .getBeanSizes();
+        Assert.assertEquals(Long.valueOf(0), sizes.get("failing"));
+        Assert.assertEquals(Long.valueOf(1016), sizes.get("foo"));
+    }
+
+    @Test
+    public void postProcessBeanFactory_footprintNotEnabled_noFootprintBean() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton(
+                ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME,
+                new MockEnvironment());
+        new VaadinUIScope().postProcessBeanFactory(beanFactory);
+
+        Assert.assertFalse(
+                beanFactory.containsBean(VaadinScopesFootprint.BEAN_NAME));
+    }
+
+    private static class ServiceHolder {
+        private final Object service;
+
+        private ServiceHolder(Object service) {
+            this.service = service;
+        }
+    }
+
     @Override
     protected Scope getScope() {
         return new VaadinUIScope();